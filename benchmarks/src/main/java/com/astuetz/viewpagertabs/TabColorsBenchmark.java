@@ -0,0 +1,76 @@
+package com.astuetz.viewpagertabs;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Color blending of {@link TabColors}: filling the color tables of a style,
+ * and blending the color of every tab from its center percentage
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TabColorsBenchmark {
+	
+	private static final int COLOR = 0xFF999999;
+	private static final int COLOR_CENTER = 0xFF91A438;
+	
+	// Entries of the color tables of a style, see TabStyle
+	private static final int PERCENT_COUNT = 101;
+	
+	@Param({ "5", "100", "1000", "10000" })
+	public int tabs;
+	
+	private int[] mPercents;
+	
+	private final int[] mTable = new int[PERCENT_COUNT];
+	
+	
+	@Setup
+	public void setUp() {
+		mPercents = new int[tabs];
+		
+		for (int i = 0; i < tabs; i++) {
+			mPercents[i] = (i * 13) % PERCENT_COUNT;
+		}
+	}
+	
+	/**
+	 * Blends the color of every tab, like setCenterPercent(int) did before the
+	 * colors were looked up from the table of the style
+	 */
+	@Benchmark
+	public void interpColor(Blackhole bh) {
+		for (int i = 0; i < tabs; i++) {
+			bh.consume(TabColors.interpColor(COLOR, COLOR_CENTER, mPercents[i] / 100f));
+		}
+	}
+	
+	/**
+	 * Fills the table of a style once and looks the color of every tab up
+	 */
+	@Benchmark
+	public void colorTable(Blackhole bh) {
+		TabColors.fillColorTable(mTable, COLOR, COLOR_CENTER);
+		
+		for (int i = 0; i < tabs; i++) {
+			bh.consume(mTable[mPercents[i]]);
+		}
+	}
+	
+}
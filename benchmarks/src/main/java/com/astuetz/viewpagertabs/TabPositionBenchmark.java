@@ -0,0 +1,137 @@
+package com.astuetz.viewpagertabs;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Position calculation and scroll interpolation of the
+ * {@link TabPositionEngine}, the work the strip does in onPageSelected,
+ * onPageScrolled and onLayout
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TabPositionBenchmark {
+	
+	// Scroll offset per simulated frame, a swipe takes 16 frames
+	private static final float SCROLL_STEP = 1f / 16;
+	
+	// Only the window around the current position is calculated and
+	// interpolated, the number of tabs doesn't change the cost
+	private static final int TABS = 1000;
+	
+	private final TabPositionEngine mEngine = createEngine(TABS);
+	
+	private int mPosition = 0;
+	
+	private float mScroll = 0;
+	
+	
+	/**
+	 * A page selected by a swipe, the positions are calculated for the new
+	 * window
+	 */
+	@Benchmark
+	public void calculate(Blackhole bh) {
+		mPosition = (mPosition + 1) % TABS;
+		mEngine.calculate(mPosition, false);
+		bh.consume(mEngine.getLayoutPos(mPosition));
+	}
+	
+	/**
+	 * A far jump, the tabs are animated from the old window to the new one
+	 */
+	@Benchmark
+	public void calculateAnimated(Blackhole bh) {
+		mPosition = (mPosition + TABS / 2 + 1) % TABS;
+		mEngine.calculateAnimated(mPosition);
+		mEngine.animate(0.5f);
+		bh.consume(mEngine.getLeavingCount());
+	}
+	
+	/**
+	 * One frame of a swipe to the right: the window is calculated when a new
+	 * page is selected and every tab of the window is positioned at the
+	 * scroll position
+	 */
+	@Benchmark
+	public void scroll(Blackhole bh) {
+		final int page = (int) mScroll;
+		
+		mScroll += SCROLL_STEP;
+		if (mScroll >= TABS - 1) mScroll = 0;
+		
+		final int position = (int) mScroll;
+		
+		if (position != page) mEngine.calculate(position, false);
+		
+		mEngine.layout(mScroll);
+		bh.consume(mEngine.getLayoutPos(position));
+	}
+	
+	/**
+	 * Lays out every tab of a strip which keeps all tabs as children, like
+	 * onLayout does. This is the only work which grows with the number of tabs.
+	 */
+	@Benchmark
+	public void layoutAllTabs(Strip strip, Blackhole bh) {
+		final TabPositionEngine engine = strip.engine;
+		
+		for (int i = 0; i < strip.tabs; i++) {
+			bh.consume(engine.getLayoutPos(i));
+		}
+	}
+	
+	
+	@State(Scope.Thread)
+	public static class Strip {
+		
+		@Param({ "5", "100", "1000", "10000" })
+		public int tabs;
+		
+		TabPositionEngine engine;
+		
+		@Setup
+		public void setUp() {
+			engine = createEngine(tabs);
+		}
+	}
+	
+	/**
+	 * Returns an engine with tabs of different widths, positioned at the
+	 * first tab
+	 */
+	static TabPositionEngine createEngine(int tabs) {
+		final TabPositionEngine engine = new TabPositionEngine();
+		
+		engine.setTabCount(tabs);
+		
+		for (int i = 0; i < tabs; i++) {
+			engine.setTabWidth(i, 60 + (i * 37) % 140);
+		}
+		
+		engine.setStripWidth(480);
+		engine.setOutsideOffset(30);
+		engine.setTabPadding(10, 10);
+		
+		engine.calculate(0, true);
+		
+		return engine;
+	}
+	
+}
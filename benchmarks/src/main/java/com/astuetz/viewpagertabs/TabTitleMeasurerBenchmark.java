@@ -0,0 +1,147 @@
+package com.astuetz.viewpagertabs;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Title measurement of the {@link TabTitleMeasurer}: all titles measured in
+ * batches on the workers, against measuring them one by one on the calling
+ * thread like the strip does without async measurement. The TextPaint of
+ * Android is replaced by a table of character advances, so the benchmark
+ * shows the cost of the batching and the threads rather than of the text
+ * layout.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TabTitleMeasurerBenchmark {
+	
+	private static final int HORIZONTAL_PADDING = 20;
+	
+	@Param({ "5", "100", "1000", "10000" })
+	public int tabs;
+	
+	private int[] mPositions;
+	
+	private String[] mTitles;
+	
+	// The measured widths by position, like the engine of the strip
+	private int[] mWidths;
+	
+	private ExecutorService mWorkers;
+	
+	private TabTitleMeasurer mMeasurer;
+	
+	private final TabTitleMeasurer.WidthFunction mWidthFunction = new AdvanceWidths(22);
+	
+	
+	@Setup
+	public void setUp() {
+		mPositions = new int[tabs];
+		mTitles = new String[tabs];
+		mWidths = new int[tabs];
+		
+		for (int i = 0; i < tabs; i++) {
+			mPositions[i] = i;
+			mTitles[i] = (i % 3 == 0 ? "Page " : "Section title ") + i;
+		}
+		
+		mWorkers = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors()));
+		
+		// deliver the batches on the worker, there's no UI thread
+		mMeasurer = new TabTitleMeasurer(mWorkers, new Executor() {
+			
+			@Override
+			public void execute(Runnable command) {
+				command.run();
+			}
+		});
+	}
+	
+	@TearDown
+	public void tearDown() {
+		mWorkers.shutdown();
+	}
+	
+	/**
+	 * Measures all titles in batches on the workers and waits for the last
+	 * batch
+	 */
+	@Benchmark
+	public void measureInBatches(Blackhole bh) throws InterruptedException {
+		final AtomicInteger remaining = new AtomicInteger(tabs);
+		final CountDownLatch done = new CountDownLatch(1);
+		
+		mMeasurer.measure(mPositions, mTitles, mWidthFunction, HORIZONTAL_PADDING, new TabTitleMeasurer.Callback() {
+			
+			@Override
+			public void onTitlesMeasured(TabTitleMeasurer.Job job, int[] positions, int[] widths, int count) {
+				for (int i = 0; i < count; i++) {
+					mWidths[positions[i]] = widths[i];
+				}
+				if (remaining.addAndGet(-count) == 0) done.countDown();
+			}
+		});
+		
+		done.await();
+		bh.consume(mWidths);
+	}
+	
+	/**
+	 * Measures all titles one by one on the calling thread
+	 */
+	@Benchmark
+	public void measureOnCaller(Blackhole bh) {
+		for (int i = 0; i < tabs; i++) {
+			mWidths[i] = (int) Math.ceil(mWidthFunction.measureText(mTitles[i])) + HORIZONTAL_PADDING;
+		}
+		bh.consume(mWidths);
+	}
+	
+	
+	/**
+	 * Sums the advances of the characters, a stand-in for
+	 * TextPaint.measureText()
+	 */
+	static final class AdvanceWidths implements TabTitleMeasurer.WidthFunction {
+		
+		private final float[] mAdvances = new float[128];
+		
+		AdvanceWidths(float textSize) {
+			for (int c = 0; c < mAdvances.length; c++) {
+				mAdvances[c] = textSize * (0.3f + (c * 7 % 11) / 20f);
+			}
+		}
+		
+		@Override
+		public float measureText(String title) {
+			float width = 0;
+			for (int i = 0, n = title.length(); i < n; i++) {
+				width += mAdvances[title.charAt(i) & 127];
+			}
+			return width;
+		}
+	}
+	
+}
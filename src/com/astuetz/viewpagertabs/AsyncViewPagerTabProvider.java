@@ -0,0 +1,35 @@
+package com.astuetz.viewpagertabs;
+
+/**
+ * An alternative to {@link ViewPagerTabProvider} for adapters whose titles are
+ * expensive to get, e.g. because they come from a database. Titles are only
+ * requested in ranges around the current position and while swiping, and the
+ * loaded titles are cached by {@link ViewPagerTabs}.
+ */
+public interface AsyncViewPagerTabProvider {
+	
+	/**
+	 * Loads the titles of the given range. This is called on the UI thread,
+	 * the titles can be delivered later from any thread.
+	 * 
+	 * @param from
+	 *          First position, inclusive
+	 * @param to
+	 *          Last position, exclusive
+	 * @param receiver
+	 *          Receives the loaded titles
+	 */
+	public void loadTitles(int from, int to, TitleReceiver receiver);
+	
+	
+	public interface TitleReceiver {
+		
+		/**
+		 * @param from
+		 *          Position of the first title
+		 * @param titles
+		 *          The titles, starting at the given position
+		 */
+		public void onTitlesLoaded(int from, String[] titles);
+	}
+}
@@ -0,0 +1,33 @@
+package com.astuetz.viewpagertabs;
+
+import android.graphics.Bitmap;
+
+/**
+ * Adds icons next to the titles. Implement this in your adapter in addition
+ * to {@link ViewPagerTabProvider} or {@link AsyncViewPagerTabProvider}.
+ * Icons are only decoded for the tabs around the current position, on a
+ * background thread, and are kept in a cache which is bounded in bytes.
+ */
+public interface IconViewPagerTabProvider {
+	
+	/**
+	 * Returns the key of the icon, tabs with equal keys share the decoded
+	 * bitmap. This is called on the UI thread for every bound tab, so it has
+	 * to be cheap.
+	 * 
+	 * @return The key, or null if the tab has no icon
+	 */
+	public String getIconKey(int position);
+	
+	/**
+	 * Decodes the icon. This is called on a background thread.
+	 * 
+	 * @param size
+	 *          The height the icon is drawn with, in pixels
+	 * @param reusable
+	 *          A bitmap which has been evicted from the cache and may be
+	 *          decoded into (e.g. with BitmapFactory.Options.inBitmap), or null
+	 * @return The icon, or null if it couldn't be decoded
+	 */
+	public Bitmap decodeIcon(int position, String key, int size, Bitmap reusable);
+}
@@ -0,0 +1,24 @@
+package com.astuetz.viewpagertabs;
+
+import android.database.DataSetObserver;
+
+/**
+ * A {@link ViewPagerTabProvider} which notifies {@link ViewPagerTabs} about
+ * changes of its data. Implement this in your adapter (e.g. backed by a
+ * {@link android.database.DataSetObservable} which is notified from
+ * notifyDataSetChanged()) and the tabs will update themselves.
+ */
+public interface ObservableViewPagerTabProvider extends ViewPagerTabProvider {
+	
+	public void registerDataSetObserver(DataSetObserver observer);
+	
+	public void unregisterDataSetObserver(DataSetObserver observer);
+	
+	/**
+	 * @return true if {@link #getTabId(int)} returns an id which doesn't change
+	 *         when the page moves to another position
+	 */
+	public boolean hasStableIds();
+	
+	public long getTabId(int position);
+}
@@ -0,0 +1,219 @@
+package com.astuetz.viewpagertabs;
+
+import android.content.Context;
+import android.graphics.Rect;
+import android.os.Bundle;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewParent;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityManager;
+import android.view.accessibility.AccessibilityNodeInfo;
+import android.view.accessibility.AccessibilityNodeProvider;
+
+/**
+ * The virtual view hierarchy of a strip in canvas mode, modeled on the
+ * ExploreByTouchHelper of newer support libraries. Every tab of the window
+ * is a virtual view whose id is its adapter position, so accessibility
+ * services can explore, focus and click the tabs like child views.
+ * 
+ * Virtual views exist since Jelly Bean, this class is only loaded there.
+ */
+final class TabAccessibilityProvider extends AccessibilityNodeProvider {
+	
+	// Id of the strip itself
+	private static final int HOST_ID = View.NO_ID;
+	
+	// Id of no tab
+	private static final int INVALID_ID = Integer.MIN_VALUE;
+	
+	private final ViewPagerTabs mHost;
+	
+	private final AccessibilityManager mManager;
+	
+	// The tab which has the accessibility focus
+	private int mFocusedId = INVALID_ID;
+	
+	// The tab under the pointer while exploring by touch
+	private int mHoveredId = INVALID_ID;
+	
+	private final Rect mTempRect = new Rect();
+	private final int[] mTempLocation = new int[2];
+	
+	
+	TabAccessibilityProvider(ViewPagerTabs host) {
+		mHost = host;
+		mManager = (AccessibilityManager) host.getContext().getSystemService(Context.ACCESSIBILITY_SERVICE);
+	}
+	
+	@Override
+	public AccessibilityNodeInfo createAccessibilityNodeInfo(int virtualViewId) {
+		
+		if (virtualViewId == HOST_ID) return createHostNode();
+		
+		if (!mHost.isTabPosition(virtualViewId)) return null;
+		
+		return createTabNode(virtualViewId);
+	}
+	
+	/**
+	 * The node of the strip, its children are the tabs on screen
+	 */
+	private AccessibilityNodeInfo createHostNode() {
+		
+		final AccessibilityNodeInfo info = AccessibilityNodeInfo.obtain(mHost);
+		mHost.onInitializeAccessibilityNodeInfo(info);
+		
+		final Rect rect = mTempRect;
+		final int last = mHost.getWindowLast();
+		
+		for (int i = mHost.getWindowFirst(); i <= last; i++) {
+			if (mHost.getTabBounds(i, rect)) info.addChild(mHost, i);
+		}
+		
+		return info;
+	}
+	
+	private AccessibilityNodeInfo createTabNode(int position) {
+		
+		final AccessibilityNodeInfo info = AccessibilityNodeInfo.obtain(mHost, position);
+		
+		info.setPackageName(mHost.getContext().getPackageName());
+		info.setClassName(ViewPagerTab.class.getName());
+		info.setParent(mHost);
+		info.setText(mHost.getTabTitle(position));
+		info.setEnabled(mHost.isEnabled());
+		info.setSelected(position == mHost.getPosition());
+		info.setClickable(true);
+		info.addAction(AccessibilityNodeInfo.ACTION_CLICK);
+		
+		if (mFocusedId == position) {
+			info.setAccessibilityFocused(true);
+			info.addAction(AccessibilityNodeInfo.ACTION_CLEAR_ACCESSIBILITY_FOCUS);
+		} else {
+			info.setAccessibilityFocused(false);
+			info.addAction(AccessibilityNodeInfo.ACTION_ACCESSIBILITY_FOCUS);
+		}
+		
+		final Rect rect = mTempRect;
+		
+		info.setVisibleToUser(mHost.getTabBounds(position, rect));
+		info.setBoundsInParent(rect);
+		
+		final int[] location = mTempLocation;
+		mHost.getLocationOnScreen(location);
+		rect.offset(location[0] - mHost.getScrollX(), location[1] - mHost.getScrollY());
+		info.setBoundsInScreen(rect);
+		
+		return info;
+	}
+	
+	@Override
+	public boolean performAction(int virtualViewId, int action, Bundle arguments) {
+		
+		if (virtualViewId == HOST_ID) return mHost.performAccessibilityAction(action, arguments);
+		
+		if (!mHost.isTabPosition(virtualViewId)) return false;
+		
+		switch (action) {
+			case AccessibilityNodeInfo.ACTION_ACCESSIBILITY_FOCUS:
+				if (mFocusedId == virtualViewId) return false;
+				mFocusedId = virtualViewId;
+				// the framework draws the focus from the bounds of the node
+				mHost.invalidate();
+				sendEventForTab(virtualViewId, AccessibilityEvent.TYPE_VIEW_ACCESSIBILITY_FOCUSED);
+				return true;
+			case AccessibilityNodeInfo.ACTION_CLEAR_ACCESSIBILITY_FOCUS:
+				if (mFocusedId != virtualViewId) return false;
+				mFocusedId = INVALID_ID;
+				mHost.invalidate();
+				sendEventForTab(virtualViewId, AccessibilityEvent.TYPE_VIEW_ACCESSIBILITY_FOCUS_CLEARED);
+				return true;
+			case AccessibilityNodeInfo.ACTION_CLICK:
+				mHost.performTabClick(virtualViewId);
+				sendEventForTab(virtualViewId, AccessibilityEvent.TYPE_VIEW_CLICKED);
+				return true;
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Moves the hover to the tab under the pointer while exploring by touch
+	 * 
+	 * @return true if the event has been handled
+	 */
+	boolean dispatchHoverEvent(MotionEvent event) {
+		
+		if (!mManager.isEnabled() || !mManager.isTouchExplorationEnabled()) return false;
+		
+		switch (event.getAction()) {
+			case MotionEvent.ACTION_HOVER_ENTER:
+			case MotionEvent.ACTION_HOVER_MOVE:
+				final int position = mHost.findTab(event.getX());
+				setHoveredId(position >= 0 ? position : INVALID_ID);
+				return mHoveredId != INVALID_ID;
+			case MotionEvent.ACTION_HOVER_EXIT:
+				if (mHoveredId == INVALID_ID) return false;
+				setHoveredId(INVALID_ID);
+				return true;
+		}
+		
+		return false;
+	}
+	
+	private void setHoveredId(int id) {
+		if (mHoveredId == id) return;
+		
+		final int old = mHoveredId;
+		mHoveredId = id;
+		
+		// like for child views, the new tab is entered before the old one is left
+		sendEventForTab(id, AccessibilityEvent.TYPE_VIEW_HOVER_ENTER);
+		sendEventForTab(old, AccessibilityEvent.TYPE_VIEW_HOVER_EXIT);
+	}
+	
+	/**
+	 * Sends an event from the virtual view of the tab
+	 * 
+	 * @return true if the event has been sent
+	 */
+	boolean sendEventForTab(int position, int eventType) {
+		
+		if (position == INVALID_ID || !mManager.isEnabled()) return false;
+		
+		final ViewParent parent = mHost.getParent();
+		
+		if (parent == null) return false;
+		
+		final AccessibilityEvent event = AccessibilityEvent.obtain(eventType);
+		
+		event.setPackageName(mHost.getContext().getPackageName());
+		event.setClassName(ViewPagerTab.class.getName());
+		event.getText().add(mHost.getTabTitle(position));
+		event.setEnabled(mHost.isEnabled());
+		event.setItemCount(mHost.getTabCount());
+		event.setCurrentItemIndex(position);
+		event.setSource(mHost, position);
+		
+		return parent.requestSendAccessibilityEvent(mHost, event);
+	}
+	
+	/**
+	 * Tells accessibility services that the tabs on screen have changed
+	 */
+	void invalidateRoot() {
+		
+		if (!mManager.isEnabled()) return;
+		
+		final ViewParent parent = mHost.getParent();
+		
+		if (parent == null) return;
+		
+		final AccessibilityEvent event = AccessibilityEvent.obtain(AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED);
+		mHost.onInitializeAccessibilityEvent(event);
+		
+		parent.requestSendAccessibilityEvent(mHost, event);
+	}
+	
+}
@@ -0,0 +1,50 @@
+package com.astuetz.viewpagertabs;
+
+/**
+ * Color interpolation for the tabs. This class has no dependencies on
+ * Android, colors are packed ARGB ints like {@link android.graphics.Color}.
+ */
+final class TabColors {
+	
+	private TabColors() {
+	}
+	
+	/**
+	 * Fills the table with the colors between normal and center, the index
+	 * is the center percentage
+	 */
+	static void fillColorTable(int[] table, int colorNormal, int colorCenter) {
+		final int last = table.length - 1;
+		for (int i = 0; i <= last; i++) {
+			table[i] = interpColor(colorNormal, colorCenter, i / (float) last);
+		}
+	}
+	
+	/**
+	 * Used for interpolating between two colors
+	 */
+	static int interpColor(int c0, int c1, float unit)
+	{
+		if (unit <= 0)
+		{
+			return c0;
+		}
+		if (unit >= 1)
+		{
+			return c1;
+		}
+		
+		int a = ave(c0 >>> 24, c1 >>> 24, unit);
+		int r = ave((c0 >> 16) & 0xFF, (c1 >> 16) & 0xFF, unit);
+		int g = ave((c0 >> 8) & 0xFF, (c1 >> 8) & 0xFF, unit);
+		int b = ave(c0 & 0xFF, c1 & 0xFF, unit);
+		
+		return (a << 24) | (r << 16) | (g << 8) | b;
+	}
+	
+	private static int ave(int s, int d, float p)
+	{
+		return s + java.lang.Math.round(p * (d - s));
+	}
+	
+}
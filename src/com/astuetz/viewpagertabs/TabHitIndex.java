@@ -0,0 +1,125 @@
+package com.astuetz.viewpagertabs;
+
+/**
+ * The bounds of the tabs on screen, sorted by their left edge. Tabs are
+ * found by binary search, so neither touch handling nor focus search has to
+ * walk the children parked outside of the strip.
+ */
+final class TabHitIndex {
+	
+	private int[] mLefts;
+	private int[] mRights;
+	private int[] mPositions;
+	
+	private int mCount = 0;
+	
+	
+	TabHitIndex(int capacity) {
+		mLefts = new int[capacity];
+		mRights = new int[capacity];
+		mPositions = new int[capacity];
+	}
+	
+	void clear() {
+		mCount = 0;
+	}
+	
+	/**
+	 * Adds a tab, tabs which are empty or outside of 0..width are ignored
+	 */
+	void add(int position, int left, int right, int width) {
+		
+		if (right <= left || right <= 0 || left >= width) return;
+		
+		if (mCount == mLefts.length) grow();
+		
+		// the index only holds a few tabs, which are mostly added in order
+		int n = mCount;
+		while (n > 0 && mLefts[n - 1] > left) {
+			mLefts[n] = mLefts[n - 1];
+			mRights[n] = mRights[n - 1];
+			mPositions[n] = mPositions[n - 1];
+			n--;
+		}
+		
+		mLefts[n] = left;
+		mRights[n] = right;
+		mPositions[n] = position;
+		mCount++;
+	}
+	
+	private void grow() {
+		final int size = mLefts.length * 2;
+		
+		final int[] lefts = new int[size];
+		final int[] rights = new int[size];
+		final int[] positions = new int[size];
+		
+		System.arraycopy(mLefts, 0, lefts, 0, mCount);
+		System.arraycopy(mRights, 0, rights, 0, mCount);
+		System.arraycopy(mPositions, 0, positions, 0, mCount);
+		
+		mLefts = lefts;
+		mRights = rights;
+		mPositions = positions;
+	}
+	
+	
+	/**
+	 * Returns the position of the tab at the given x coordinate, or -1 if
+	 * there is none
+	 */
+	int find(int x) {
+		
+		// find the last tab which starts at or before x
+		int lo = 0;
+		int hi = mCount - 1;
+		int found = -1;
+		
+		while (lo <= hi) {
+			final int mid = (lo + hi) >>> 1;
+			if (mLefts[mid] <= x) {
+				found = mid;
+				lo = mid + 1;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		
+		return found >= 0 && x < mRights[found] ? mPositions[found] : -1;
+	}
+	
+	/**
+	 * Returns the position of the tab on the left or right of the given one,
+	 * or -1 if there is none on screen
+	 */
+	int findNeighbour(int position, boolean right) {
+		
+		for (int n = 0; n < mCount; n++) {
+			if (mPositions[n] != position) continue;
+			
+			final int neighbour = right ? n + 1 : n - 1;
+			return neighbour >= 0 && neighbour < mCount ? mPositions[neighbour] : -1;
+		}
+		
+		return -1;
+	}
+	
+	int size() {
+		return mCount;
+	}
+	
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		
+		for (int n = 0; n < mCount; n++) {
+			sb.append(mPositions[n]).append(": ");
+			sb.append(mLefts[n]).append(" - ").append(mRights[n]).append("\n");
+		}
+		
+		return sb.toString();
+	}
+	
+}
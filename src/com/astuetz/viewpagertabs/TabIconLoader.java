@@ -0,0 +1,238 @@
+package com.astuetz.viewpagertabs;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.support.v4.util.LruCache;
+import android.util.Log;
+
+/**
+ * Decodes icons from an {@link IconViewPagerTabProvider} on a background
+ * thread and keeps them in a cache which is bounded in bytes. Evicted
+ * bitmaps are handed to the provider for decoding the next icons into, once
+ * the tabs which drew them have been redrawn.
+ */
+final class TabIconLoader {
+	
+	private static final String TAG = "ViewPagerTabs";
+	
+	public static final int DEFAULT_MAX_BYTES = 1024 * 1024;
+	
+	// Number of evicted bitmaps which are kept for reuse
+	private static final int MAX_REUSABLE = 4;
+	
+	/**
+	 * Notified on the UI thread when an icon has been decoded or evicted
+	 */
+	interface Callback {
+		public void onIconLoaded(String key);
+		
+		/**
+		 * The views which drew the icon have to be invalidated, its bitmap is
+		 * reused for decoding another icon
+		 */
+		public void onIconEvicted(String key);
+	}
+	
+	
+	private static ExecutorService sExecutor;
+	
+	private static synchronized ExecutorService getExecutor() {
+		if (sExecutor == null) {
+			sExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				
+				@Override
+				public Thread newThread(final Runnable r) {
+					Thread t = new Thread(new Runnable() {
+						
+						@Override
+						public void run() {
+							Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+							r.run();
+						}
+					}, "ViewPagerTabs-icons");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		return sExecutor;
+	}
+	
+	
+	private final IconViewPagerTabProvider mProvider;
+	private final Callback mCallback;
+	
+	private final Handler mHandler = new Handler(Looper.getMainLooper());
+	
+	private final LruCache<String, Bitmap> mCache;
+	
+	// Evicted bitmaps, taken by the decoding thread
+	private final ArrayList<Bitmap> mReusable = new ArrayList<Bitmap>(MAX_REUSABLE);
+	
+	// Icons which are being decoded
+	private final HashSet<String> mLoading = new HashSet<String>();
+	
+	private int mSize;
+	
+	private volatile boolean mCancelled = false;
+	
+	
+	TabIconLoader(IconViewPagerTabProvider provider, int maxBytes, int size, Callback callback) {
+		mProvider = provider;
+		mCallback = callback;
+		mSize = size;
+		
+		mCache = new LruCache<String, Bitmap>(maxBytes) {
+			
+			@Override
+			protected int sizeOf(String key, Bitmap icon) {
+				return icon.getRowBytes() * icon.getHeight();
+			}
+			
+			@Override
+			protected void entryRemoved(boolean evicted, String key, final Bitmap oldIcon, Bitmap newIcon) {
+				if (!evicted) return;
+				
+				mCallback.onIconEvicted(key);
+				
+				// the invalidated views are redrawn before this runs, then
+				// nothing draws the bitmap anymore
+				mHandler.post(new Runnable() {
+					
+					@Override
+					public void run() {
+						offerReusable(oldIcon);
+					}
+				});
+			}
+		};
+	}
+	
+	public IconViewPagerTabProvider getProvider() {
+		return mProvider;
+	}
+	
+	/**
+	 * Sets the height of the icons which are decoded from now on
+	 */
+	public void setSize(int size) {
+		mSize = size;
+	}
+	
+	/**
+	 * Returns the decoded icon, or null if it isn't cached
+	 */
+	public Bitmap get(String key) {
+		return mCache.get(key);
+	}
+	
+	/**
+	 * Starts decoding the icon, unless it is cached or already being decoded
+	 */
+	public void load(final int position, final String key) {
+		
+		if (mLoading.contains(key) || mCache.get(key) != null) return;
+		
+		mLoading.add(key);
+		
+		final int size = mSize;
+		
+		getExecutor().execute(new Runnable() {
+			
+			@Override
+			public void run() {
+				if (mCancelled) return;
+				
+				final Bitmap reusable = takeReusable();
+				
+				Bitmap decoded = null;
+				
+				// the key has to be removed from the loading ones even if this
+				// fails, otherwise the icon is never requested again
+				try {
+					decoded = mProvider.decodeIcon(position, key, size, reusable);
+					if (reusable != null && reusable != decoded) offerReusable(reusable);
+				} catch (RuntimeException e) {
+					Log.w(TAG, "Decoding icon " + key + " failed", e);
+				} catch (OutOfMemoryError e) {
+					Log.w(TAG, "Decoding icon " + key + " failed", e);
+				}
+				
+				final Bitmap icon = decoded;
+				
+				mHandler.post(new Runnable() {
+					
+					@Override
+					public void run() {
+						if (mCancelled) return;
+						
+						mLoading.remove(key);
+						
+						if (icon != null) {
+							mCache.put(key, icon);
+							mCallback.onIconLoaded(key);
+						}
+					}
+				});
+			}
+		});
+	}
+	
+	/**
+	 * Drops the results of all pending decodes
+	 */
+	public void cancel() {
+		mCancelled = true;
+		mLoading.clear();
+	}
+	
+	public void clear() {
+		mCache.evictAll();
+	}
+	
+	
+	private void offerReusable(Bitmap icon) {
+		synchronized (mReusable) {
+			if (mReusable.size() < MAX_REUSABLE && icon.isMutable()) mReusable.add(icon);
+		}
+	}
+	
+	private Bitmap takeReusable() {
+		synchronized (mReusable) {
+			final int size = mReusable.size();
+			return size > 0 ? mReusable.remove(size - 1) : null;
+		}
+	}
+	
+	
+	/**
+	 * Returns the number of bytes used by the cached icons
+	 */
+	public int size() {
+		return mCache.size();
+	}
+	
+	public int maxSize() {
+		return mCache.maxSize();
+	}
+	
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		
+		sb.append("TabIconLoader: ").append(size()).append("/").append(maxSize()).append(" bytes");
+		sb.append(", loading ").append(mLoading.size());
+		
+		return sb.toString();
+	}
+	
+}
@@ -0,0 +1,139 @@
+package com.astuetz.viewpagertabs;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.support.v4.util.LruCache;
+import android.text.TextPaint;
+
+/**
+ * A size-bounded cache of pre-rendered tab titles. Every title is rendered
+ * once into an ALPHA_8 bitmap, which is drawn with the color of the paint
+ * afterwards, so the interpolated text color still works.
+ * 
+ * The size of the cache is the number of bytes of all bitmaps. Entries are
+ * evicted if the text size or typeface changes, the text size is in pixels,
+ * so this covers changes of the density as well.
+ */
+public final class TabLabelCache {
+	
+	public static final int DEFAULT_MAX_BYTES = 256 * 1024;
+	
+	private final LruCache<String, Bitmap> mCache;
+	
+	// The style the cached labels were rendered with
+	private float mTextSize = -1;
+	private Typeface mTypeface;
+	
+	private final Canvas mCanvas = new Canvas();
+	private final TextPaint mRenderPaint = new TextPaint();
+	private final Paint.FontMetricsInt mFontMetrics = new Paint.FontMetricsInt();
+	
+	
+	/**
+	 * @param maxBytes
+	 *          Maximum number of bytes of all cached bitmaps
+	 */
+	public TabLabelCache(int maxBytes) {
+		mCache = new LruCache<String, Bitmap>(maxBytes) {
+			
+			@Override
+			protected int sizeOf(String title, Bitmap label) {
+				return label.getRowBytes() * label.getHeight();
+			}
+		};
+	}
+	
+	
+	/**
+	 * Returns the rendered title, the top of the bitmap is at the top of the
+	 * font (baseline + FontMetricsInt.top). Renders the title if it isn't
+	 * cached.
+	 * 
+	 * @return The label or null if the title is empty
+	 */
+	public Bitmap get(String title, TextPaint paint) {
+		
+		if (paint.getTextSize() != mTextSize || paint.getTypeface() != mTypeface) {
+			mCache.evictAll();
+			mTextSize = paint.getTextSize();
+			mTypeface = paint.getTypeface();
+		}
+		
+		Bitmap label = mCache.get(title);
+		
+		if (label == null) {
+			label = render(title, paint);
+			if (label != null) mCache.put(title, label);
+		}
+		
+		return label;
+	}
+	
+	/**
+	 * Evicts the label of a title which isn't used anymore
+	 */
+	public void remove(String title) {
+		if (title != null) mCache.remove(title);
+	}
+	
+	private Bitmap render(String title, TextPaint paint) {
+		
+		final TextPaint renderPaint = mRenderPaint;
+		final Paint.FontMetricsInt fm = mFontMetrics;
+		
+		renderPaint.set(paint);
+		renderPaint.setColor(0xFF000000);
+		renderPaint.getFontMetricsInt(fm);
+		
+		final int width = (int) Math.ceil(renderPaint.measureText(title));
+		final int height = fm.bottom - fm.top;
+		
+		if (width <= 0 || height <= 0) return null;
+		
+		final Bitmap label = Bitmap.createBitmap(width, height, Bitmap.Config.ALPHA_8);
+		
+		mCanvas.setBitmap(label);
+		mCanvas.drawText(title, 0, -fm.top, renderPaint);
+		
+		return label;
+	}
+	
+	public void clear() {
+		mCache.evictAll();
+	}
+	
+	
+	/**
+	 * Returns the number of bytes used by the cached labels
+	 */
+	public int size() {
+		return mCache.size();
+	}
+	
+	public int maxSize() {
+		return mCache.maxSize();
+	}
+	
+	public int hitCount() {
+		return mCache.hitCount();
+	}
+	
+	public int missCount() {
+		return mCache.missCount();
+	}
+	
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		
+		sb.append("TabLabelCache: ").append(size()).append("/").append(maxSize()).append(" bytes");
+		sb.append(", hits ").append(hitCount());
+		sb.append(", misses ").append(missCount());
+		
+		return sb.toString();
+	}
+	
+}
@@ -0,0 +1,162 @@
+package com.astuetz.viewpagertabs;
+
+import android.graphics.Typeface;
+import android.support.v4.util.LruCache;
+
+/**
+ * A process-wide LRU cache of measured tab sizes. The entries are keyed by
+ * everything which affects the size of a tab: title, text size, typeface,
+ * padding and line height. A tab with a known size is measured with exact
+ * dimensions, so its text doesn't have to be measured again.
+ * 
+ * Widths which were measured from the text alone, without laying it out in a
+ * TextView, are kept under approximate keys. They are good enough to position
+ * the tabs, but a view measured with them could ellipsize its title.
+ */
+public final class TabMeasureCache {
+	
+	public static final int DEFAULT_MAX_SIZE = 512;
+	
+	// Returned by get() if the size isn't cached
+	public static final long MISS = -1;
+	
+	private static TabMeasureCache sInstance;
+	
+	private final LruCache<Key, Long> mCache;
+	
+	
+	private TabMeasureCache(int maxSize) {
+		mCache = new LruCache<Key, Long>(maxSize);
+	}
+	
+	/**
+	 * Returns the cache shared by all tabs
+	 */
+	public static synchronized TabMeasureCache getInstance() {
+		if (sInstance == null) sInstance = new TabMeasureCache(DEFAULT_MAX_SIZE);
+		return sInstance;
+	}
+	
+	
+	/**
+	 * Returns the cached size, use {@link #width(long)} and {@link #height(long)}
+	 * to unpack it
+	 * 
+	 * @return The size or {@link #MISS}
+	 */
+	public long get(Key key) {
+		final Long size = mCache.get(key);
+		return size != null ? size : MISS;
+	}
+	
+	public void put(Key key, int width, int height) {
+		mCache.put(key, ((long) width << 32) | (height & 0xFFFFFFFFL));
+	}
+	
+	public static int width(long size) {
+		return (int) (size >> 32);
+	}
+	
+	public static int height(long size) {
+		return (int) size;
+	}
+	
+	public void clear() {
+		mCache.evictAll();
+	}
+	
+	
+	public int hitCount() {
+		return mCache.hitCount();
+	}
+	
+	public int missCount() {
+		return mCache.missCount();
+	}
+	
+	public int size() {
+		return mCache.size();
+	}
+	
+	public int maxSize() {
+		return mCache.maxSize();
+	}
+	
+	@Override
+	public String toString() {
+		return "TabMeasureCache[size=" + size() + ", maxSize=" + maxSize() + ", hits=" + hitCount() + ", misses="
+		    + missCount() + "]";
+	}
+	
+	
+	/**
+	 * Everything which affects the size of a tab
+	 */
+	public static final class Key {
+		
+		final String title;
+		final float textSize;
+		final Typeface typeface;
+		final int paddingLeft;
+		final int paddingTop;
+		final int paddingRight;
+		final int paddingBottom;
+		final int lineHeight;
+		final boolean approximate;
+		
+		private final int mHashCode;
+		
+		public Key(String title, float textSize, Typeface typeface, int paddingLeft, int paddingTop, int paddingRight,
+		    int paddingBottom, int lineHeight) {
+			this(title, textSize, typeface, paddingLeft, paddingTop, paddingRight, paddingBottom, lineHeight, false);
+		}
+		
+		/**
+		 * @param approximate
+		 *          True if the width is measured with Paint.measureText() instead
+		 *          of a TextView
+		 */
+		public Key(String title, float textSize, Typeface typeface, int paddingLeft, int paddingTop, int paddingRight,
+		    int paddingBottom, int lineHeight, boolean approximate) {
+			this.title = title;
+			this.textSize = textSize;
+			this.typeface = typeface;
+			this.paddingLeft = paddingLeft;
+			this.paddingTop = paddingTop;
+			this.paddingRight = paddingRight;
+			this.paddingBottom = paddingBottom;
+			this.lineHeight = lineHeight;
+			this.approximate = approximate;
+			
+			int h = title.hashCode();
+			h = 31 * h + Float.floatToIntBits(textSize);
+			h = 31 * h + (typeface != null ? typeface.hashCode() : 0);
+			h = 31 * h + paddingLeft;
+			h = 31 * h + paddingTop;
+			h = 31 * h + paddingRight;
+			h = 31 * h + paddingBottom;
+			h = 31 * h + lineHeight;
+			h = 31 * h + (approximate ? 1 : 0);
+			mHashCode = h;
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof Key)) return false;
+			
+			final Key k = (Key) o;
+			
+			return mHashCode == k.mHashCode && textSize == k.textSize && typeface == k.typeface
+			    && paddingLeft == k.paddingLeft && paddingTop == k.paddingTop && paddingRight == k.paddingRight
+			    && paddingBottom == k.paddingBottom && lineHeight == k.lineHeight && approximate == k.approximate
+			    && title.equals(k.title);
+		}
+		
+		@Override
+		public int hashCode() {
+			return mHashCode;
+		}
+	}
+	
+}
@@ -0,0 +1,105 @@
+package com.astuetz.viewpagertabs;
+
+import java.util.Arrays;
+
+/**
+ * A {@link TabMetricsListener} which collects the metrics into histograms,
+ * e.g. for exporting them to a telemetry system.
+ * 
+ * Durations are collected in power-of-two buckets: bucket i holds the events
+ * which took less than 2^i nanoseconds (and at least 2^(i-1)). Per-frame
+ * counters are collected in linear buckets, the last bucket holds all values
+ * which are larger.
+ */
+public class TabMetricsHistogram implements TabMetricsListener {
+	
+	// Per-frame counters
+	public static final int COUNTER_REQUEST_LAYOUT = 0;
+	public static final int COUNTER_MEASURE = 1;
+	public static final int COUNTER_TABS_TOUCHED = 2;
+	
+	public static final int COUNTER_COUNT = 3;
+	
+	public static final int DURATION_BUCKETS = 64;
+	public static final int COUNTER_BUCKETS = 33;
+	
+	
+	private final long[][] mDurations = new long[EVENT_COUNT][DURATION_BUCKETS];
+	private final long[] mTotalNanos = new long[EVENT_COUNT];
+	
+	private final long[][] mCounters = new long[COUNTER_COUNT][COUNTER_BUCKETS];
+	
+	private long mFrameCount = 0;
+	
+	
+	@Override
+	public void onEvent(int event, long durationNanos) {
+		final int bucket = durationNanos <= 0 ? 0 : DURATION_BUCKETS - Long.numberOfLeadingZeros(durationNanos);
+		mDurations[event][Math.min(bucket, DURATION_BUCKETS - 1)]++;
+		mTotalNanos[event] += durationNanos;
+	}
+	
+	@Override
+	public void onFrame(int requestLayoutCount, int measureCount, int tabsTouched) {
+		mCounters[COUNTER_REQUEST_LAYOUT][Math.min(requestLayoutCount, COUNTER_BUCKETS - 1)]++;
+		mCounters[COUNTER_MEASURE][Math.min(measureCount, COUNTER_BUCKETS - 1)]++;
+		mCounters[COUNTER_TABS_TOUCHED][Math.min(tabsTouched, COUNTER_BUCKETS - 1)]++;
+		mFrameCount++;
+	}
+	
+	
+	/**
+	 * Returns a copy of the duration histogram of an event
+	 * 
+	 * @param event
+	 *          One of the EVENT_ constants of {@link TabMetricsListener}
+	 */
+	public long[] getDurationHistogram(int event) {
+		return mDurations[event].clone();
+	}
+	
+	/**
+	 * Returns a copy of the histogram of a per-frame counter
+	 * 
+	 * @param counter
+	 *          One of the COUNTER_ constants
+	 */
+	public long[] getCounterHistogram(int counter) {
+		return mCounters[counter].clone();
+	}
+	
+	public long getEventCount(int event) {
+		long count = 0;
+		for (long c : mDurations[event]) {
+			count += c;
+		}
+		return count;
+	}
+	
+	public long getTotalNanos(int event) {
+		return mTotalNanos[event];
+	}
+	
+	public long getFrameCount() {
+		return mFrameCount;
+	}
+	
+	/**
+	 * Upper bound (exclusive) of a duration bucket in nanoseconds
+	 */
+	public static long getDurationBucketLimit(int bucket) {
+		return bucket >= DURATION_BUCKETS - 1 ? Long.MAX_VALUE : 1L << bucket;
+	}
+	
+	public void reset() {
+		for (int i = 0; i < EVENT_COUNT; i++) {
+			Arrays.fill(mDurations[i], 0);
+			mTotalNanos[i] = 0;
+		}
+		for (int i = 0; i < COUNTER_COUNT; i++) {
+			Arrays.fill(mCounters[i], 0);
+		}
+		mFrameCount = 0;
+	}
+	
+}
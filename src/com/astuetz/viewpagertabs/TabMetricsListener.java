@@ -0,0 +1,42 @@
+package com.astuetz.viewpagertabs;
+
+/**
+ * Receives performance metrics from {@link ViewPagerTabs}. Install it with
+ * {@link ViewPagerTabs#setMetricsListener(TabMetricsListener)}, nothing is
+ * measured while no listener is installed.
+ * 
+ * All methods are called on the UI thread.
+ */
+public interface TabMetricsListener {
+	
+	// Timed events
+	public static final int EVENT_PAGE_SCROLLED = 0;
+	public static final int EVENT_LAYOUT = 1;
+	public static final int EVENT_CALCULATE_POSITIONS = 2;
+	public static final int EVENT_MEASURE_CHILDREN = 3;
+	public static final int EVENT_DRAW_TAB = 4;
+	
+	public static final int EVENT_COUNT = 5;
+	
+	/**
+	 * Called after each timed event
+	 * 
+	 * @param event
+	 *          One of the EVENT_ constants
+	 * @param durationNanos
+	 *          Duration of the event in nanoseconds
+	 */
+	public void onEvent(int event, long durationNanos);
+	
+	/**
+	 * Called once per drawn frame with the work done since the previous frame
+	 * 
+	 * @param requestLayoutCount
+	 *          Number of requestLayout() calls on the strip
+	 * @param measureCount
+	 *          Number of tabs which have been measured
+	 * @param tabsTouched
+	 *          Number of tabs which have been moved or laid out
+	 */
+	public void onFrame(int requestLayoutCount, int measureCount, int tabsTouched);
+}
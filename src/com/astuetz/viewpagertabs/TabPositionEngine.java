@@ -0,0 +1,320 @@
+package com.astuetz.viewpagertabs;
+
+/**
+ * Calculates the positions of the tabs. This class has no dependencies on
+ * Android, it only works on the widths of the tabs and the width of the
+ * strip.
+ * 
+ * The position of a tab is a function of the scroll position of the pager
+ * (see getPos(int, float)): between two pages every tab moves linearly from
+ * its settled position of the one page to the one of the other page. Only the
+ * tabs from position - 2 to position + 2 can come to screen, their layout
+ * positions are held in an array indexed by their slot in this window.
+ */
+public final class TabPositionEngine {
+	
+	// Scrolling direction, used to prefetch the titles ahead of the scroll
+	public static final int DIRECTION_CENTER = 0;
+	public static final int DIRECTION_LEFT = 1;
+	public static final int DIRECTION_RIGHT = 2;
+	
+	// Number of tabs on each side of the current one which can come to screen
+	public static final int WINDOW_RADIUS = 2;
+	
+	private static final int WINDOW_SIZE = WINDOW_RADIUS * 2 + 1;
+	
+	
+	private int mCount = 0;
+	
+	private int[] mWidths = new int[16];
+	
+	private int mStripWidth = 0;
+	private int mOutsideOffset = 0;
+	private int mPaddingLeft = 0;
+	private int mPaddingRight = 0;
+	
+	// The current position, the window starts at mPosition - WINDOW_RADIUS
+	private int mPosition = 0;
+	
+	private final int[] mLayout = new int[WINDOW_SIZE];
+	
+	private final int[] mScratch = new int[WINDOW_SIZE];
+	
+	// Layout positions at the start of an animation
+	private final int[] mStart = new int[WINDOW_SIZE];
+	
+	// Tabs which left the window with the last animated calculation, they
+	// move from their old layout position to their resting position
+	private final int[] mLeaving = new int[WINDOW_SIZE];
+	private final int[] mLeavingStart = new int[WINDOW_SIZE];
+	private final int[] mLeavingLayout = new int[WINDOW_SIZE];
+	private int mLeavingCount = 0;
+	
+	
+	/**
+	 * Sets the number of tabs. Widths of the remaining positions are kept.
+	 */
+	public void setTabCount(int count) {
+		if (count > mWidths.length) {
+			final int[] widths = new int[Math.max(count, mWidths.length * 2)];
+			System.arraycopy(mWidths, 0, widths, 0, mCount);
+			mWidths = widths;
+		}
+		
+		mCount = count;
+	}
+	
+	public int getTabCount() {
+		return mCount;
+	}
+	
+	public void setTabWidth(int position, int width) {
+		mWidths[position] = width;
+	}
+	
+	public int getTabWidth(int position) {
+		return mWidths[position];
+	}
+	
+	public void setStripWidth(int width) {
+		mStripWidth = width;
+	}
+	
+	/**
+	 * @param offset
+	 *          The offset at which tabs are moved, if they are outside the
+	 *          strip
+	 */
+	public void setOutsideOffset(int offset) {
+		mOutsideOffset = offset;
+	}
+	
+	public void setTabPadding(int left, int right) {
+		mPaddingLeft = left;
+		mPaddingRight = right;
+	}
+	
+	public int getPosition() {
+		return mPosition;
+	}
+	
+	
+	/**
+	 * Moves the window to the given position. Only the window around the
+	 * position is touched.
+	 * 
+	 * @param firstTime
+	 *          If true, the tabs will be aligned at their current position,
+	 *          otherwise they keep their layout position until the next call of
+	 *          layout(float)
+	 */
+	public void calculate(int position, boolean firstTime) {
+		
+		final int first = position - WINDOW_RADIUS;
+		
+		for (int k = 0; k < WINDOW_SIZE; k++) {
+			final int i = first + k;
+			if (i < 0 || i >= mCount) continue;
+			
+			// keep the layout positions of the tabs in the new window
+			mScratch[k] = firstTime ? settledPos(i, position) : getLayoutPos(i);
+		}
+		
+		mLeavingCount = 0;
+		
+		mPosition = position;
+		
+		System.arraycopy(mScratch, 0, mLayout, 0, WINDOW_SIZE);
+	}
+	
+	/**
+	 * Calculates the positions like calculate(position, false) and prepares
+	 * moving every tab from its current layout position straight to its new
+	 * current position with animate(float). Tabs which leave the window move
+	 * to their resting position.
+	 */
+	public void calculateAnimated(int position) {
+		
+		// remember the tabs which leave the window
+		final int oldFirst = mPosition - WINDOW_RADIUS;
+		int leaving = 0;
+		
+		for (int k = 0; k < WINDOW_SIZE; k++) {
+			final int i = oldFirst + k;
+			if (i < 0 || i >= mCount || Math.abs(i - position) <= WINDOW_RADIUS) continue;
+			
+			mLeaving[leaving] = i;
+			mLeavingStart[leaving] = mLayout[k];
+			mLeavingLayout[leaving] = mLayout[k];
+			leaving++;
+		}
+		
+		calculate(position, false);
+		
+		System.arraycopy(mLayout, 0, mStart, 0, WINDOW_SIZE);
+		mLeavingCount = leaving;
+	}
+	
+	/**
+	 * Moves the tabs between the positions of the last call of
+	 * calculateAnimated(int). The leaving tabs are reported until the next
+	 * calculation, so they can be moved to their resting position with the
+	 * last step.
+	 * 
+	 * @param t
+	 *          0 is at the start, 1 at the end of the animation
+	 */
+	public void animate(float t) {
+		
+		final int[] start = mStart;
+		final int[] layout = mLayout;
+		final int first = mPosition - WINDOW_RADIUS;
+		
+		for (int k = 0; k < WINDOW_SIZE; k++) {
+			final int i = first + k;
+			if (i < 0 || i >= mCount) continue;
+			
+			layout[k] = start[k] + (int) ((settledPos(i, mPosition) - start[k]) * t);
+		}
+		
+		for (int n = 0; n < mLeavingCount; n++) {
+			final int from = mLeavingStart[n];
+			mLeavingLayout[n] = from + (int) ((restingPos(mLeaving[n]) - from) * t);
+		}
+	}
+	
+	/**
+	 * Moves every tab in the window to its position at the given scroll
+	 * position, see getPos(int, float)
+	 */
+	public void layout(float scroll) {
+		
+		final int[] layout = mLayout;
+		final int first = mPosition - WINDOW_RADIUS;
+		
+		mLeavingCount = 0;
+		
+		for (int k = 0; k < WINDOW_SIZE; k++) {
+			final int i = first + k;
+			if (i >= 0 && i < mCount) layout[k] = getPos(i, scroll);
+		}
+	}
+	
+	/**
+	 * Returns the position of a tab at any scroll position of the pager. This
+	 * doesn't depend on the window or on previous calls.
+	 * 
+	 * @param scroll
+	 *          The page which is shown, plus the offset to the next page
+	 */
+	public int getPos(int position, float scroll) {
+		
+		final int page = (int) Math.floor(scroll);
+		final float x = scroll - page;
+		
+		final float y0 = settledPos(position, page);
+		if (x == 0) return (int) y0;
+		
+		final float y1 = settledPos(position, page + 1);
+		return (int) (y0 + (y1 * x - y0 * x));
+	}
+	
+	
+	public int getLayoutPos(int position) {
+		final int k = position - mPosition + WINDOW_RADIUS;
+		if (k >= 0 && k < WINDOW_SIZE) return mLayout[k];
+		
+		for (int n = 0; n < mLeavingCount; n++) {
+			if (mLeaving[n] == position) return mLeavingLayout[n];
+		}
+		
+		return restingPos(position);
+	}
+	
+	/**
+	 * Returns the number of tabs which are moving out of the window, see
+	 * calculateAnimated(int)
+	 */
+	public int getLeavingCount() {
+		return mLeavingCount;
+	}
+	
+	public int getLeavingPosition(int n) {
+		return mLeaving[n];
+	}
+	
+	/**
+	 * Position of a tab which will not come to screen
+	 */
+	private int restingPos(int position) {
+		return position < mPosition ? leftOutside(position) : rightOutside(position);
+	}
+	
+	/**
+	 * Position of a tab while the given page is shown. The tabs next to the
+	 * center one are pushed away from it, so that they never overlap.
+	 */
+	private int settledPos(int position, int page) {
+		
+		if (position == page) return center(position);
+		
+		if (position == page - 1) {
+			final int pos = left(position);
+			if (page >= mCount) return pos;
+			return Math.min(pos, center(page) - mWidths[position]);
+		}
+		
+		if (position == page + 1) {
+			final int pos = right(position);
+			if (page < 0) return pos;
+			return Math.max(pos, center(page) + mWidths[page]);
+		}
+		
+		return position < page ? leftOutside(position) : rightOutside(position);
+	}
+	
+	
+	private int leftOutside(int position) {
+		final int width = mWidths[position];
+		return width * (-1) - mOutsideOffset;
+	}
+	
+	private int left(int position) {
+		return 0 - mPaddingLeft;
+	}
+	
+	private int center(int position) {
+		final int width = mWidths[position];
+		return mStripWidth / 2 - width / 2;
+	}
+	
+	private int right(int position) {
+		final int width = mWidths[position];
+		return mStripWidth - width + mPaddingRight;
+	}
+	
+	private int rightOutside(int position) {
+		return mStripWidth + mOutsideOffset;
+	}
+	
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		
+		final int first = mPosition - WINDOW_RADIUS;
+		
+		for (int k = 0; k < WINDOW_SIZE; k++) {
+			if (first + k < 0 || first + k >= mCount) continue;
+			
+			sb.append(first + k).append(": ");
+			sb.append(settledPos(first + k, mPosition + 1));
+			sb.append(" <- ").append(settledPos(first + k, mPosition));
+			sb.append(" -> ").append(settledPos(first + k, mPosition - 1));
+			sb.append(" (").append(mLayout[k]).append(")\n");
+		}
+		
+		return sb.toString();
+	}
+	
+}
@@ -0,0 +1,223 @@
+package com.astuetz.viewpagertabs;
+
+import java.util.HashMap;
+
+import android.content.res.ColorStateList;
+import android.graphics.Paint;
+import android.text.TextPaint;
+
+/**
+ * The drawing resources of a style: interpolated colors for every center
+ * percentage, the paints of the line, the pressed background and the text.
+ * The paints are never changed once they are created, so a style can be
+ * shared by every tab and every strip in the process.
+ * 
+ * Styles are reference counted by {@link #acquire}, a style is removed from
+ * the shared ones when its last user releases it.
+ */
+final class TabStyle {
+	
+	// Number of entries of the color tables, the index is the center percentage
+	static final int PERCENT_COUNT = 101;
+	
+	/**
+	 * The style of a {@link ViewPagerTab} which isn't styled by a strip
+	 */
+	static final TabStyle DEFAULT = new TabStyle(new Key(0xFF999999, 0xFF91A438, 0xFF3B3B3B, 0xFF91A438, 0x9943797F, 0));
+	
+	private static final HashMap<Key, TabStyle> sStyles = new HashMap<Key, TabStyle>();
+	
+	
+	final Key key;
+	
+	private final int[] mTextColors = new int[PERCENT_COUNT];
+	private final int[] mLineColors = new int[PERCENT_COUNT];
+	
+	// Created with the style, neither drawing nor scrolling allocates a paint
+	// or a color list
+	private final ColorStateList[] mTextColorLists = new ColorStateList[PERCENT_COUNT];
+	private final Paint[] mLinePaints = new Paint[PERCENT_COUNT];
+	private final TextPaint[] mTextPaints = new TextPaint[PERCENT_COUNT];
+	
+	private final Paint mSelectedPaint = new Paint();
+	
+	// Drawn in place of an icon which isn't decoded yet
+	private final Paint mPlaceholderPaint = new Paint();
+	
+	private final Paint.FontMetricsInt mFontMetrics = new Paint.FontMetricsInt();
+	
+	private int mReferences = 0;
+	
+	
+	TabStyle(Key key) {
+		this.key = key;
+		
+		TabColors.fillColorTable(mTextColors, key.textColor, key.textColorCenter);
+		TabColors.fillColorTable(mLineColors, key.lineColor, key.lineColorCenter);
+		
+		for (int percent = 0; percent < PERCENT_COUNT; percent++) {
+			mTextColorLists[percent] = ColorStateList.valueOf(mTextColors[percent]);
+			
+			final Paint linePaint = new Paint();
+			linePaint.setColor(mLineColors[percent]);
+			mLinePaints[percent] = linePaint;
+			
+			final TextPaint textPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+			textPaint.setTextSize(key.textSize);
+			textPaint.setColor(mTextColors[percent]);
+			mTextPaints[percent] = textPaint;
+		}
+		
+		mSelectedPaint.setColor(key.backgroundColorPressed);
+		
+		// the normal text color, at a quarter of its alpha
+		mPlaceholderPaint.setColor((key.textColor & 0x00FFFFFF) | ((key.textColor >>> 26) << 24));
+		
+		mTextPaints[0].getFontMetricsInt(mFontMetrics);
+	}
+	
+	/**
+	 * Returns the shared style for the given key and increments its reference
+	 * count
+	 */
+	static TabStyle acquire(Key key) {
+		synchronized (sStyles) {
+			TabStyle style = sStyles.get(key);
+			
+			if (style == null) {
+				style = new TabStyle(key);
+				sStyles.put(key, style);
+			}
+			
+			style.mReferences++;
+			return style;
+		}
+	}
+	
+	/**
+	 * Releases a style returned by {@link #acquire}
+	 */
+	void release() {
+		synchronized (sStyles) {
+			if (mReferences > 0 && --mReferences == 0) sStyles.remove(key);
+		}
+	}
+	
+	/**
+	 * Returns the number of styles which are currently shared
+	 */
+	static int getSharedCount() {
+		synchronized (sStyles) {
+			return sStyles.size();
+		}
+	}
+	
+	
+	int getTextColor(int percent) {
+		return mTextColors[percent];
+	}
+	
+	/**
+	 * Returns the text color as a color list for TextView.setTextColor(), which
+	 * would create a new one for every int color
+	 */
+	ColorStateList getTextColorList(int percent) {
+		return mTextColorLists[percent];
+	}
+	
+	int getLineColor(int percent) {
+		return mLineColors[percent];
+	}
+	
+	Paint getLinePaint(int percent) {
+		return mLinePaints[percent];
+	}
+	
+	/**
+	 * Returns the paint for text drawn by the strip, which has the text size
+	 * of the key and the interpolated text color
+	 */
+	TextPaint getTextPaint(int percent) {
+		return mTextPaints[percent];
+	}
+	
+	Paint getSelectedPaint() {
+		return mSelectedPaint;
+	}
+	
+	Paint getPlaceholderPaint() {
+		return mPlaceholderPaint;
+	}
+	
+	/**
+	 * Font metrics of the text paint
+	 */
+	Paint.FontMetricsInt getFontMetrics() {
+		return mFontMetrics;
+	}
+	
+	
+	/**
+	 * Everything a style is made of. The text size is in pixels.
+	 */
+	static final class Key {
+		
+		final int textColor;
+		final int textColorCenter;
+		final int lineColor;
+		final int lineColorCenter;
+		final int backgroundColorPressed;
+		final float textSize;
+		
+		private final int mHash;
+		
+		Key(int textColor, int textColorCenter, int lineColor, int lineColorCenter, int backgroundColorPressed,
+		    float textSize) {
+			this.textColor = textColor;
+			this.textColorCenter = textColorCenter;
+			this.lineColor = lineColor;
+			this.lineColorCenter = lineColorCenter;
+			this.backgroundColorPressed = backgroundColorPressed;
+			this.textSize = textSize;
+			
+			int hash = textColor;
+			hash = 31 * hash + textColorCenter;
+			hash = 31 * hash + lineColor;
+			hash = 31 * hash + lineColorCenter;
+			hash = 31 * hash + backgroundColorPressed;
+			hash = 31 * hash + Float.floatToIntBits(textSize);
+			mHash = hash;
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof Key)) return false;
+			
+			final Key k = (Key) o;
+			
+			return textColor == k.textColor && textColorCenter == k.textColorCenter && lineColor == k.lineColor
+			    && lineColorCenter == k.lineColorCenter && backgroundColorPressed == k.backgroundColorPressed
+			    && textSize == k.textSize;
+		}
+		
+		@Override
+		public int hashCode() {
+			return mHash;
+		}
+	}
+	
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		
+		sb.append("TabStyle: ").append(Integer.toHexString(key.textColor));
+		sb.append(" -> ").append(Integer.toHexString(key.textColorCenter));
+		sb.append(", ").append(key.textSize).append("px");
+		sb.append(" (").append(mReferences).append(" references)");
+		
+		return sb.toString();
+	}
+	
+}
@@ -0,0 +1,203 @@
+package com.astuetz.viewpagertabs;
+
+import java.util.HashSet;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v4.util.LruCache;
+
+/**
+ * Loads titles from an {@link AsyncViewPagerTabProvider} in chunks and keeps
+ * them in a bounded cache. Only the chunks around the current position are
+ * loaded, plus some prefetched ones in the direction of swiping.
+ */
+final class TabTitleLoader {
+	
+	public static final int DEFAULT_CACHE_SIZE = 256;
+	
+	// Number of titles which are loaded together
+	private static final int CHUNK_SIZE = 16;
+	
+	// Number of titles around the current position which are always loaded
+	private static final int LOAD_RADIUS = TabPositionEngine.WINDOW_RADIUS + 1;
+	
+	// Number of titles loaded ahead in the direction of swiping
+	private static final int PREFETCH_DISTANCE = CHUNK_SIZE * 2;
+	
+	/**
+	 * Notified on the UI thread when titles have been loaded
+	 */
+	interface Callback {
+		public void onTitlesLoaded(int from, int to);
+	}
+	
+	
+	private final AsyncViewPagerTabProvider mProvider;
+	private final Callback mCallback;
+	
+	private final Handler mHandler = new Handler(Looper.getMainLooper());
+	
+	private LruCache<Integer, String> mCache;
+	
+	// Titles from before the last reset, shown until the new ones are loaded
+	private LruCache<Integer, String> mStaleCache;
+	
+	// Chunks which have been requested but not yet delivered
+	private final HashSet<Integer> mLoadingChunks = new HashSet<Integer>();
+	
+	// Incremented when the data changes, late results of older loads are dropped
+	private int mGeneration = 0;
+	
+	private int mCount = 0;
+	
+	
+	TabTitleLoader(AsyncViewPagerTabProvider provider, int cacheSize, Callback callback) {
+		mProvider = provider;
+		mCallback = callback;
+		mCache = new LruCache<Integer, String>(cacheSize);
+	}
+	
+	public AsyncViewPagerTabProvider getProvider() {
+		return mProvider;
+	}
+	
+	/**
+	 * Marks all cached titles as stale, e.g. because the dataset changed. Stale
+	 * titles are still returned until they are loaded again.
+	 */
+	public void reset(int count) {
+		mCount = count;
+		mGeneration++;
+		mStaleCache = mCache;
+		mCache = new LruCache<Integer, String>(mStaleCache.maxSize());
+		mLoadingChunks.clear();
+	}
+	
+	/**
+	 * Marks the titles in the given range as stale, they are loaded again
+	 * when they are requested the next time
+	 * 
+	 * @param from
+	 *          First position, inclusive
+	 * @param to
+	 *          Last position, exclusive
+	 */
+	public void invalidate(int from, int to) {
+		if (from >= to) return;
+		
+		if (mStaleCache == null) mStaleCache = new LruCache<Integer, String>(mCache.maxSize());
+		
+		for (int i = from; i < to; i++) {
+			final String title = mCache.remove(i);
+			if (title != null) mStaleCache.put(i, title);
+		}
+		
+		for (int chunk = from / CHUNK_SIZE; chunk <= (to - 1) / CHUNK_SIZE; chunk++) {
+			mLoadingChunks.remove(chunk);
+		}
+	}
+	
+	/**
+	 * Returns the cached title, or null if it has never been loaded
+	 */
+	public String getTitle(int position) {
+		final String title = mCache.get(position);
+		if (title != null || mStaleCache == null) return title;
+		return mStaleCache.get(position);
+	}
+	
+	/**
+	 * Loads the titles around the position and prefetches in the given
+	 * direction
+	 * 
+	 * @param direction
+	 *          One of the DIRECTION_ constants of {@link TabPositionEngine}
+	 */
+	public void request(int position, int direction) {
+		
+		int from = position - LOAD_RADIUS;
+		int to = position + LOAD_RADIUS;
+		
+		if (direction == TabPositionEngine.DIRECTION_LEFT) from -= PREFETCH_DISTANCE;
+		if (direction == TabPositionEngine.DIRECTION_RIGHT) to += PREFETCH_DISTANCE;
+		
+		from = Math.max(0, from);
+		to = Math.min(mCount - 1, to);
+		
+		if (from > to) return;
+		
+		// load the chunk of the current position first
+		final int center = Math.max(from, Math.min(to, position)) / CHUNK_SIZE;
+		
+		requestChunk(center);
+		
+		for (int chunk = center - 1; chunk >= from / CHUNK_SIZE; chunk--) {
+			requestChunk(chunk);
+		}
+		for (int chunk = center + 1; chunk <= to / CHUNK_SIZE; chunk++) {
+			requestChunk(chunk);
+		}
+	}
+	
+	private void requestChunk(final int chunk) {
+		
+		if (mLoadingChunks.contains(chunk)) return;
+		
+		final int from = chunk * CHUNK_SIZE;
+		final int to = Math.min(mCount, from + CHUNK_SIZE);
+		
+		if (isLoaded(from, to)) return;
+		
+		mLoadingChunks.add(chunk);
+		
+		final int generation = mGeneration;
+		
+		mProvider.loadTitles(from, to, new AsyncViewPagerTabProvider.TitleReceiver() {
+			
+			@Override
+			public void onTitlesLoaded(final int first, final String[] titles) {
+				
+				if (Looper.myLooper() == Looper.getMainLooper()) {
+					deliver(generation, chunk, first, titles);
+				} else {
+					mHandler.post(new Runnable() {
+						
+						@Override
+						public void run() {
+							deliver(generation, chunk, first, titles);
+						}
+					});
+				}
+			}
+		});
+	}
+	
+	private boolean isLoaded(int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (mCache.get(i) == null) return false;
+		}
+		return true;
+	}
+	
+	private void deliver(int generation, int chunk, int from, String[] titles) {
+		if (generation != mGeneration) return;
+		
+		mLoadingChunks.remove(chunk);
+		
+		for (int i = 0; i < titles.length; i++) {
+			if (titles[i] != null) mCache.put(from + i, titles[i]);
+		}
+		
+		mCallback.onTitlesLoaded(from, from + titles.length);
+	}
+	
+	
+	public int getCacheSize() {
+		return mCache.size();
+	}
+	
+	public int getMaxCacheSize() {
+		return mCache.maxSize();
+	}
+	
+}
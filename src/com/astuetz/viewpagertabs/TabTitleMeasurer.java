@@ -0,0 +1,139 @@
+package com.astuetz.viewpagertabs;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Measures the widths of tab titles on background threads. The titles are
+ * split into batches which are measured in parallel on the worker executor.
+ * The results are delivered on the result executor batch by batch, in the
+ * order in which the titles were passed.
+ * <p>
+ * The class doesn't depend on Android, the strip passes the workers, the UI
+ * thread and a {@link TabTitlePaint} as width function.
+ */
+final class TabTitleMeasurer {
+	
+	// Number of titles measured and published together
+	private static final int BATCH_SIZE = 128;
+	
+	/**
+	 * Measures a single title, called from all workers at the same time
+	 */
+	interface WidthFunction {
+		public float measureText(String title);
+	}
+	
+	/**
+	 * Receives the measured widths on the result executor
+	 */
+	interface Callback {
+		public void onTitlesMeasured(Job job, int[] positions, int[] widths, int count);
+	}
+	
+	
+	private final Executor mWorkers;
+	
+	private final Executor mResults;
+	
+	
+	/**
+	 * @param workers
+	 *          Measures the batches, should run them in parallel
+	 * @param results
+	 *          Delivers the measured widths to the callback
+	 */
+	public TabTitleMeasurer(Executor workers, Executor results) {
+		mWorkers = workers;
+		mResults = results;
+	}
+	
+	/**
+	 * Starts measuring the titles
+	 * 
+	 * @param positions
+	 *          Adapter positions of the titles, the first ones are published
+	 *          first
+	 * @param titles
+	 *          The titles to measure
+	 * @param widthFunction
+	 *          Measures the titles
+	 * @param horizontalPadding
+	 *          Padding which is added to each width
+	 * @return The job, which can be cancelled
+	 */
+	public Job measure(int[] positions, String[] titles, WidthFunction widthFunction, int horizontalPadding,
+	    Callback callback) {
+		
+		final Job job = new Job(positions, titles, widthFunction, horizontalPadding, callback);
+		
+		for (int from = 0; from < positions.length; from += BATCH_SIZE) {
+			mWorkers.execute(job.new Batch(from, Math.min(from + BATCH_SIZE, positions.length)));
+		}
+		
+		return job;
+	}
+	
+	
+	final class Job {
+		
+		private final int[] mPositions;
+		private final String[] mTitles;
+		private final WidthFunction mWidthFunction;
+		private final int mHorizontalPadding;
+		private final Callback mCallback;
+		
+		private volatile boolean mCancelled = false;
+		
+		private Job(int[] positions, String[] titles, WidthFunction widthFunction, int horizontalPadding,
+		    Callback callback) {
+			mPositions = positions;
+			mTitles = titles;
+			mWidthFunction = widthFunction;
+			mHorizontalPadding = horizontalPadding;
+			mCallback = callback;
+		}
+		
+		public void cancel() {
+			mCancelled = true;
+		}
+		
+		public boolean isCancelled() {
+			return mCancelled;
+		}
+		
+		
+		private final class Batch implements Runnable {
+			
+			private final int mFrom;
+			private final int mTo;
+			
+			Batch(int from, int to) {
+				mFrom = from;
+				mTo = to;
+			}
+			
+			@Override
+			public void run() {
+				if (mCancelled) return;
+				
+				final int count = mTo - mFrom;
+				final int[] positions = new int[count];
+				final int[] widths = new int[count];
+				
+				for (int i = 0; i < count; i++) {
+					positions[i] = mPositions[mFrom + i];
+					widths[i] = (int) Math.ceil(mWidthFunction.measureText(mTitles[mFrom + i])) + mHorizontalPadding;
+				}
+				
+				mResults.execute(new Runnable() {
+					
+					@Override
+					public void run() {
+						if (!mCancelled) mCallback.onTitlesMeasured(Job.this, positions, widths, count);
+					}
+				});
+			}
+		}
+	}
+	
+}
@@ -0,0 +1,96 @@
+package com.astuetz.viewpagertabs;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.text.TextPaint;
+
+/**
+ * The Android side of {@link TabTitleMeasurer}: measures the titles with a
+ * {@link TextPaint} per worker thread, on background threads on all cores,
+ * and delivers the widths on the UI thread.
+ */
+final class TabTitlePaint implements TabTitleMeasurer.WidthFunction {
+	
+	private static ExecutorService sExecutor;
+	
+	private static final ThreadLocal<TextPaint> sPaint = new ThreadLocal<TextPaint>() {
+		
+		@Override
+		protected TextPaint initialValue() {
+			return new TextPaint(Paint.ANTI_ALIAS_FLAG);
+		}
+	};
+	
+	private static synchronized ExecutorService getExecutor() {
+		if (sExecutor == null) {
+			final int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+			
+			sExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+				
+				private int mCount = 0;
+				
+				@Override
+				public Thread newThread(final Runnable r) {
+					Thread t = new Thread(new Runnable() {
+						
+						@Override
+						public void run() {
+							Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+							r.run();
+						}
+					}, "ViewPagerTabs-measure-" + mCount++);
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		return sExecutor;
+	}
+	
+	/**
+	 * Returns a measurer which measures on the background threads and
+	 * delivers the widths on the UI thread
+	 */
+	static TabTitleMeasurer createMeasurer() {
+		final Handler handler = new Handler(Looper.getMainLooper());
+		
+		return new TabTitleMeasurer(getExecutor(), new Executor() {
+			
+			@Override
+			public void execute(Runnable command) {
+				handler.post(command);
+			}
+		});
+	}
+	
+	
+	private final float mTextSize;
+	
+	private final Typeface mTypeface;
+	
+	
+	TabTitlePaint(float textSize, Typeface typeface) {
+		mTextSize = textSize;
+		mTypeface = typeface;
+	}
+	
+	@Override
+	public float measureText(String title) {
+		final TextPaint paint = sPaint.get();
+		
+		// the paint of a worker is shared by all jobs
+		if (paint.getTextSize() != mTextSize) paint.setTextSize(mTextSize);
+		if (paint.getTypeface() != mTypeface) paint.setTypeface(mTypeface);
+		
+		return paint.measureText(title);
+	}
+	
+}
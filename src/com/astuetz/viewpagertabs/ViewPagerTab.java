@@ -1,9 +1,11 @@
 package com.astuetz.viewpagertabs;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
-import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.Rect;
+import android.text.TextUtils;
 import android.text.TextUtils.TruncateAt;
 import android.util.AttributeSet;
 import android.widget.TextView;
@@ -14,13 +16,13 @@ public class ViewPagerTab extends TextView {
 	@SuppressWarnings("unused")
 	private static final String TAG = "ViewPagerTabs";
 	
-	private int mTextColorNormal = 0xFF999999;
-	private int mTextColorCenter = 0xFF91A438;
+	// Colors and paints, shared with every other tab of the same style
+	private TabStyle mStyle = TabStyle.DEFAULT;
 	
-	private int mLineColorNormal = 0xFF3B3B3B;
-	private int mLineColorCenter = 0xFF91A438;
-	
-	private int mBackgroundColorPressed = 0x9943797F;
+	// True if the style was created by one of the public color setters, the
+	// tab then holds it from the shared styles while it is attached
+	private boolean mOwnStyle = false;
+	private boolean mStyleAcquired = false;
 	
 	private int mLineHeight = 4;
 	
@@ -30,11 +32,27 @@ public class ViewPagerTab extends TextView {
 	
 	private int mIndex = -1;
 	
-	public int currentPos;
-	public int prevPos;
-	public int nextPos;
+	private long mTabId = -1;
+	
+	// True until the view is measured, its width may already be known from
+	// the background measurement or the restored snapshot
+	private boolean mMeasurePending = false;
+	
+	// True while the width of the tab is being measured in the background
+	private boolean mWidthPending = false;
 	
-	public int layoutPos;
+	// Draws the title from a pre-rendered bitmap, if set
+	private TabLabelCache mLabelCache;
+	
+	// The icon left of the title, drawn into the left padding. A placeholder
+	// is drawn until the loader has decoded the icon.
+	private TabIconLoader mIconLoader;
+	private String mIconKey;
+	private int mIconWidth = 0;
+	private int mIconHeight = 0;
+	private int mIconPadding = 0;
+	
+	private final Rect mIconRect = new Rect();
 	
 	
 	public ViewPagerTab(Context context) {
@@ -48,11 +66,6 @@ public class ViewPagerTab extends TextView {
 	public ViewPagerTab(Context context, AttributeSet attrs, int defStyle) {
 		super(context, attrs, defStyle);
 		
-		this.currentPos = 0;
-		this.prevPos = 0;
-		this.nextPos = 0;
-		this.layoutPos = 0;
-		
 		this.setSingleLine(true);
 		this.setEllipsize(TruncateAt.END);
 		
@@ -60,6 +73,8 @@ public class ViewPagerTab extends TextView {
 		
 		this.setFocusable(true);
 		
+		setTextColor(mStyle.getTextColorList(mCenterPercent));
+		
 	}
 	
 	public void setIndex(int i) {
@@ -70,16 +85,134 @@ public class ViewPagerTab extends TextView {
 		return mIndex;
 	}
 	
+	public void setTabId(long id) {
+		mTabId = id;
+	}
+	
+	public long getTabId() {
+		return mTabId;
+	}
+	
+	void setMeasurePending(boolean pending) {
+		mMeasurePending = pending;
+	}
+	
+	boolean isMeasurePending() {
+		return mMeasurePending;
+	}
+	
+	void setWidthPending(boolean pending) {
+		mWidthPending = pending;
+	}
+	
+	boolean isWidthPending() {
+		return mWidthPending;
+	}
+	
+	void setLabelCache(TabLabelCache cache) {
+		if (mLabelCache == cache) return;
+		mLabelCache = cache;
+		invalidate();
+	}
+	
+	
+	
+	/**
+	 * Sets the shared style, tabs of a {@link ViewPagerTabs} get the style of
+	 * the strip
+	 */
+	void setStyle(TabStyle style) {
+		if (mStyle == style) return;
+		releaseOwnStyle();
+		mOwnStyle = false;
+		mStyle = style;
+		setTextColor(style.getTextColorList(mCenterPercent));
+		invalidate();
+	}
+	
+	/**
+	 * Switches to the style of the key, which is acquired from the shared
+	 * styles if the tab is attached
+	 */
+	private void setOwnStyle(TabStyle.Key key) {
+		final boolean attached = getWindowToken() != null;
+		setStyle(attached ? TabStyle.acquire(key) : new TabStyle(key));
+		mOwnStyle = true;
+		mStyleAcquired = attached;
+	}
+	
+	private void releaseOwnStyle() {
+		if (!mStyleAcquired) return;
+		mStyle.release();
+		mStyleAcquired = false;
+	}
+	
+	@Override
+	protected void onAttachedToWindow() {
+		super.onAttachedToWindow();
+		
+		if (mOwnStyle && !mStyleAcquired) {
+			mStyle = TabStyle.acquire(mStyle.key);
+			mStyleAcquired = true;
+		}
+	}
+	
+	/**
+	 * Releases the own style, the tab keeps drawing with it until it is
+	 * attached again
+	 */
+	@Override
+	protected void onDetachedFromWindow() {
+		super.onDetachedFromWindow();
+		releaseOwnStyle();
+	}
 	
+	TabStyle getStyle() {
+		return mStyle;
+	}
+	
+	/**
+	 * Sets the icon, the left padding has to make room for it (see
+	 * getIconSpace())
+	 * 
+	 * @param key
+	 *          Key of the icon in the loader, or null for no icon
+	 */
+	void setIcon(TabIconLoader loader, String key, int width, int height, int padding) {
+		if (mIconLoader == loader && TextUtils.equals(mIconKey, key) && mIconWidth == width && mIconHeight == height
+		    && mIconPadding == padding) return;
+		
+		mIconLoader = loader;
+		mIconKey = key;
+		mIconWidth = width;
+		mIconHeight = height;
+		mIconPadding = padding;
+		invalidate();
+	}
+	
+	String getIconKey() {
+		return mIconKey;
+	}
+	
+	/**
+	 * Returns the width of the icon plus its padding, or 0 if there is none
+	 */
+	int getIconSpace() {
+		return mIconKey != null ? mIconWidth + mIconPadding : 0;
+	}
 	
 	public void setTextColors(int textColorNormal, int textColorCenter) {
-		this.mTextColorNormal = textColorNormal;
-		this.mTextColorCenter = textColorCenter;
+		final TabStyle.Key k = mStyle.key;
+		if (textColorNormal == k.textColor && textColorCenter == k.textColorCenter) return;
+		setOwnStyle(new TabStyle.Key(textColorNormal, textColorCenter, k.lineColor, k.lineColorCenter,
+		    k.backgroundColorPressed, k.textSize));
 	}
 	
 	public void setLineColors(int lineColorNormal, int lineColorCenter) {
-		this.mLineColorNormal = lineColorNormal;
-		this.mLineColorCenter = lineColorCenter;
+		final TabStyle.Key k = mStyle.key;
+		if (lineColorNormal == k.lineColor && lineColorCenter == k.lineColorCenter) return;
+		setOwnStyle(new TabStyle.Key(k.textColor, k.textColorCenter, lineColorNormal, lineColorCenter,
+		    k.backgroundColorPressed, k.textSize));
 	}
 	
 	public void setLineHeight(int lineHeight) {
@@ -87,7 +220,10 @@ public class ViewPagerTab extends TextView {
 	}
 	
 	public void setBackgroundColorPressed(int backgroundColorPressed) {
-		this.mBackgroundColorPressed = backgroundColorPressed;
+		final TabStyle.Key k = mStyle.key;
+		if (backgroundColorPressed == k.backgroundColorPressed) return;
+		setOwnStyle(new TabStyle.Key(k.textColor, k.textColorCenter, k.lineColor, k.lineColorCenter,
+		    backgroundColorPressed, k.textSize));
 	}
 	
 	
@@ -108,28 +244,27 @@ public class ViewPagerTab extends TextView {
 	public void setCenterPercent(int percent) {
 		if (percent < 0) percent = 0;
 		if (percent > 100) percent = 100;
+		if (percent == mCenterPercent) return;
 		mCenterPercent = percent;
+		
+		// the text color is set here and not while drawing,
+		// so drawing never schedules another frame by itself
+		setTextColor(mStyle.getTextColorList(percent));
+		invalidate();
 	}
 	
 	
 	
-	private Paint mLinePaint = new Paint();
-	private Paint mSelectedPaint = new Paint();
-	
-	protected synchronized void onDraw(Canvas canvas) {
-		
-		final Paint linePaint = mLinePaint;
-		final Paint selectedPaint = mSelectedPaint;
-		
-		selectedPaint.setColor(mBackgroundColorPressed);
-		
-		// interpolate text color
-		final int textColors[] = new int[] { mTextColorNormal, mTextColorCenter };
-		setTextColor(interpColor(textColors, mCenterPercent / 100.0f));
+	/**
+	 * Draws the line and the pressed background. This doesn't allocate and
+	 * doesn't change any state of the view or of the shared paints, an idle
+	 * tab isn't redrawn.
+	 */
+	@Override
+	protected void onDraw(Canvas canvas) {
 		
-		// interpolate line color
-		final int lineColors[] = new int[] { mLineColorNormal, mLineColorCenter };
-		linePaint.setColor(interpColor(lineColors, mCenterPercent / 100.0f));
+		final Paint linePaint = mStyle.getLinePaint(mCenterPercent);
+		final Paint selectedPaint = mStyle.getSelectedPaint();
 		
 		// draw the line
 		canvas.drawRect(0, getHeight() - mLineHeight, getWidth(), getHeight(), linePaint);
@@ -137,57 +272,66 @@ public class ViewPagerTab extends TextView {
 		// draw background
 		if (this.isFocused() || this.isPressed()) canvas.drawRect(0, 0, getWidth(), getHeight(), selectedPaint);
 		
+		if (mIconKey != null && mIconLoader != null) drawIcon(canvas);
+		
+		if (mLabelCache != null && drawLabel(canvas)) return;
+		
 		super.onDraw(canvas);
 		
 	}
 	
-	
-	@Override
-	public String toString() {
-		StringBuilder sb = new StringBuilder();
+	/**
+	 * Draws the icon left of the title, vertically centered to the text. The
+	 * icon is looked up on every draw, so an evicted bitmap is never drawn.
+	 */
+	private void drawIcon(Canvas canvas) {
 		
-		sb.append(this.getText()).append(": ");
-		sb.append(prevPos);
-		sb.append(" <- ").append(currentPos);
-		sb.append(" -> ").append(nextPos);
-		sb.append(" (").append(layoutPos).append(")");
+		final Rect rect = mIconRect;
 		
-		return sb.toString();
+		rect.left = getPaddingLeft() - mIconPadding - mIconWidth;
+		rect.top = getPaddingTop() + (getHeight() - getPaddingTop() - getPaddingBottom() - mIconHeight) / 2;
+		rect.right = rect.left + mIconWidth;
+		rect.bottom = rect.top + mIconHeight;
+		
+		final Bitmap icon = mIconLoader.get(mIconKey);
+		
+		if (icon != null) {
+			canvas.drawBitmap(icon, null, rect, null);
+		} else {
+			canvas.drawRect(rect, mStyle.getPlaceholderPaint());
+		}
 	}
 	
-	
 	/**
-	 * Used for interpolating between some colors
+	 * Draws the title from the {@link TabLabelCache}, tinted with the text
+	 * color of the style
+	 * 
+	 * @return false if the title has to be drawn by the TextView
 	 */
-	private int interpColor(int colors[], float unit)
-	{
-		if (unit <= 0)
-		{
-			return colors[0];
-		}
-		if (unit >= 1)
-		{
-			return colors[colors.length - 1];
-		}
+	private boolean drawLabel(Canvas canvas) {
 		
-		float p = unit * (colors.length - 1);
-		int i = (int) p;
-		p -= i;
+		final Bitmap label = mLabelCache.get(getText().toString(), getPaint());
 		
-		// now p is just the fractional part [0...1) and i is the index
-		int c0 = colors[i];
-		int c1 = colors[i + 1];
-		int a = ave(Color.alpha(c0), Color.alpha(c1), p);
-		int r = ave(Color.red(c0), Color.red(c1), p);
-		int g = ave(Color.green(c0), Color.green(c1), p);
-		int b = ave(Color.blue(c0), Color.blue(c1), p);
+		// ellipsized titles are left to the TextView
+		if (label == null || label.getWidth() > getWidth() - getPaddingLeft() - getPaddingRight()) return false;
 		
-		return Color.argb(a, r, g, b);
+		canvas.drawBitmap(label, getPaddingLeft(), getPaddingTop(), mStyle.getTextPaint(mCenterPercent));
+		
+		return true;
 	}
 	
-	private int ave(int s, int d, float p)
-	{
-		return s + java.lang.Math.round(p * (d - s));
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		
+		sb.append(this.getText()).append(": ");
+		sb.append(mIndex);
+		sb.append(" (").append(getLeft()).append(")");
+		
+		return sb.toString();
 	}
 	
+	
+	
 }
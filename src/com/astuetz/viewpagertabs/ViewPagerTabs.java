@@ -1,18 +1,44 @@
 package com.astuetz.viewpagertabs;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
 import android.content.Context;
+import android.content.res.Resources;
 import android.content.res.TypedArray;
+import android.database.DataSetObserver;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Shader;
+import android.graphics.Typeface;
 import android.os.Parcel;
 import android.os.Parcelable;
+import android.support.v4.view.PagerAdapter;
 import android.support.v4.view.ViewPager;
 import android.support.v4.view.ViewPager.OnPageChangeListener;
+import android.text.TextPaint;
+import android.text.TextUtils;
 import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+import android.view.SoundEffectConstants;
 import android.view.View;
 import android.view.View.BaseSavedState;
 import android.view.View.MeasureSpec;
 import android.view.View.OnClickListener;
 import android.view.ViewGroup;
 import android.view.ViewGroup.LayoutParams;
+import android.view.ViewTreeObserver;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityNodeProvider;
+import android.view.animation.AnimationUtils;
+import android.view.animation.DecelerateInterpolator;
+import android.view.animation.Interpolator;
 import android.widget.TextView;
 
 
@@ -21,15 +47,53 @@ public class ViewPagerTabs extends ViewGroup implements OnPageChangeListener {
 	@SuppressWarnings("unused")
 	private static final String TAG = "ViewPagerTabs";
 	
+	/**
+	 * Every tab is a child view ({@link ViewPagerTab})
+	 */
+	public static final int RENDER_MODE_VIEWS = 0;
+	
+	/**
+	 * The strip draws the visible tabs itself, no child views are created
+	 */
+	public static final int RENDER_MODE_CANVAS = 1;
+	
+	/**
+	 * The edges are faded by the framework, which draws into an offscreen
+	 * layer on every frame
+	 */
+	public static final int FADING_EDGE_LAYER = 0;
+	
+	/**
+	 * Gradients from the fading edge color are drawn over the edges
+	 */
+	public static final int FADING_EDGE_GRADIENT = 1;
 	
-	// Scrolling direction
-	private enum Direction {
-		Left, Right, Center
-	}
 	
 	// Length of the horizontal fading edges
 	private static final int SHADOW_WIDTH = 35;
 	
+	// Default height of the icons and space between icon and title, in dip
+	private static final int ICON_SIZE = 24;
+	private static final int ICON_PADDING = 6;
+	
+	// Number of tabs on each side of the current one which can come to screen
+	private static final int WINDOW_RADIUS = TabPositionEngine.WINDOW_RADIUS;
+	
+	private static final int WINDOW_SIZE = WINDOW_RADIUS * 2 + 1;
+	
+	// Icons are decoded for the window and one tab beyond each side
+	private static final int ICON_RADIUS = WINDOW_RADIUS + 1;
+	
+	// Duration of the animation if the pager jumps over several pages, in ms
+	private static final int JUMP_DURATION = 250;
+	
+	// Maximum number of detached tabs kept for reuse in virtualized mode
+	private static final int MAX_RECYCLED_TABS = 3;
+	
+	// Maximum number of tab widths saved with the instance state, the ones
+	// closest to the current position are kept
+	private static final int MAX_SNAPSHOT_TABS = 256;
+	
 	// Context.
 	private Context mContext;
 	
@@ -39,6 +103,9 @@ public class ViewPagerTabs extends ViewGroup implements OnPageChangeListener {
 	// The current position
 	private int mPosition = 0;
 	
+	// Holds the widths and calculates the positions of the tabs
+	private final TabPositionEngine mEngine = new TabPositionEngine();
+	
 	// The offset at which tabs are going to
 	// be moved, if they are outside the screen
 	private int mOutsideOffset = -1;
@@ -46,6 +113,221 @@ public class ViewPagerTabs extends ViewGroup implements OnPageChangeListener {
 	// Used for initial positioning of the tabs
 	private boolean isFirstMeasurement = true;
 	
+	// True if the tabs have to be built from the adapter in the next onMeasure
+	private boolean mTabsInvalid = false;
+	
+	// If true, only the tabs around the current position are kept as children
+	private boolean mVirtualized = false;
+	
+	// Number of pages in the pager's adapter
+	private int mTabCount = 0;
+	
+	// Adapter position of the first child, children are ordered by position
+	private int mFirstBound = 0;
+	
+	// Detached tabs which can be rebound to another position
+	private final ArrayList<ViewPagerTab> mRecycledTabs = new ArrayList<ViewPagerTab>(MAX_RECYCLED_TABS);
+	
+	// Children which were detached during an incremental dataset update
+	private final ArrayList<ViewPagerTab> mScrapTabs = new ArrayList<ViewPagerTab>();
+	
+	// Tabs which left the window with a jump in virtualized mode. They stay
+	// attached behind the bound tabs until the jump animation has moved them
+	// out of the strip.
+	private final ArrayList<ViewPagerTab> mLeavingTabs = new ArrayList<ViewPagerTab>(WINDOW_SIZE);
+	
+	// Scrapped tabs by their stable id, if the adapter provides them
+	private final HashMap<Long, ViewPagerTab> mScrapTabsById = new HashMap<Long, ViewPagerTab>();
+	
+	// The provider this instance is registered at as observer
+	private ObservableViewPagerTabProvider mObservedProvider;
+	
+	// True if a dataset update has been posted but not yet run
+	private boolean mUpdatePending = false;
+	
+	// If true, the titles of tabs outside the window are measured in the background
+	private boolean mAsyncMeasurement = false;
+	
+	// True if tabs are waiting for a background measurement to be started
+	private boolean mMeasurePending = false;
+	
+	private TabTitleMeasurer mTitleMeasurer;
+	
+	// The running background measurement
+	private TabTitleMeasurer.Job mMeasureJob;
+	
+	// Positions (ascending), widths and title hashes of the tabs from before
+	// the process was restarted, only set if density, font scale, text size
+	// and typeface are the same
+	private int[] mSnapshotPositions;
+	private int[] mSnapshotWidths;
+	private int[] mSnapshotHashes;
+	
+	// Height of the last measured tab, all tabs have the same height
+	private int mTabHeight = 0;
+	
+	private final TabTitleMeasurer.Callback mMeasureCallback = new TabTitleMeasurer.Callback() {
+		
+		@Override
+		public void onTitlesMeasured(TabTitleMeasurer.Job job, int[] positions, int[] widths, int count) {
+			if (job == mMeasureJob) applyMeasuredWidths(positions, widths, count);
+		}
+	};
+	
+	// Loads and caches the titles if the adapter is an AsyncViewPagerTabProvider
+	private TabTitleLoader mTitleLoader;
+	
+	private int mTitleCacheSize = TabTitleLoader.DEFAULT_CACHE_SIZE;
+	
+	private final TabTitleLoader.Callback mTitleCallback = new TabTitleLoader.Callback() {
+		
+		@Override
+		public void onTitlesLoaded(int from, int to) {
+			applyTitles(from, to);
+		}
+	};
+	
+	// Decodes and caches the icons if the adapter is an IconViewPagerTabProvider
+	private TabIconLoader mIconLoader;
+	
+	private int mIconCacheSize = TabIconLoader.DEFAULT_MAX_BYTES;
+	
+	private final TabIconLoader.Callback mIconCallback = new TabIconLoader.Callback() {
+		
+		@Override
+		public void onIconLoaded(String key) {
+			applyIcons(key);
+		}
+		
+		@Override
+		public void onIconEvicted(String key) {
+			invalidateIcon(key);
+		}
+	};
+	
+	// Scrolling direction reported by the last onPageScrolled
+	private int mScrollDirection = TabPositionEngine.DIRECTION_CENTER;
+	
+	// Scroll state of the pager
+	private int mScrollState = ViewPager.SCROLL_STATE_IDLE;
+	
+	// The latest scroll position reported by the pager (the page plus the
+	// offset to the next page), which hasn't been applied yet
+	private boolean mScrollPending = false;
+	private float mPendingScroll = 0.0f;
+	
+	// Applies the pending scroll and advances the jump animation before a
+	// frame is drawn, so neither state changes nor allocations happen while
+	// drawing
+	private final ViewTreeObserver.OnPreDrawListener mPreDrawListener = new ViewTreeObserver.OnPreDrawListener() {
+		
+		@Override
+		public boolean onPreDraw() {
+			if (mScrollPending) applyScroll();
+			if (mAnimating) stepAnimation();
+			return true;
+		}
+	};
+	
+	// True while the pager settles on a page which is more than one page away,
+	// the tabs are animated instead of following the scroll position
+	private boolean mJumping = false;
+	
+	// The jump animation is advanced once per frame, by the pre-draw listener
+	private boolean mAnimating = false;
+	private long mAnimationStart = 0;
+	private final Interpolator mInterpolator = new DecelerateInterpolator();
+	
+	// One of RENDER_MODE_VIEWS and RENDER_MODE_CANVAS
+	private int mRenderMode = RENDER_MODE_VIEWS;
+	
+	// Titles of the tabs in the window in canvas mode, indexed by position - mCanvasFirst
+	private final String[] mCanvasTitles = new String[WINDOW_SIZE];
+	private final String[] mCanvasScratch = new String[WINDOW_SIZE];
+	private int mCanvasFirst = 0;
+	private int mCanvasCount = 0;
+	
+	// Titles of the window before the last jump in canvas mode, the tabs
+	// leaving the window are drawn with them until the animation ends
+	private final String[] mCanvasLeavingTitles = new String[WINDOW_SIZE];
+	private int mCanvasLeavingFirst = 0;
+	
+	// The pressed tab, -1 if none
+	private int mPressedPosition = -1;
+	
+	// Bounds of the tabs on screen, rebuilt when a touch or a focus search
+	// starts
+	private final TabHitIndex mHitIndex = new TabHitIndex(WINDOW_SIZE * 2);
+	
+	// The virtual views of the tabs in canvas mode, created when an
+	// accessibility service asks for them (Jelly Bean and later)
+	private TabAccessibilityProvider mAccessibilityProvider;
+	
+	// Shared by all tabs, selects the page of the clicked tab
+	private final OnClickListener mTabClickListener = new OnClickListener() {
+		
+		@Override
+		public void onClick(View v) {
+			mPager.setCurrentItem(((ViewPagerTab) v).getIndex());
+		}
+	};
+	
+	// Paints and interpolated colors of the current style. While attached the
+	// style is acquired from the shared ones and released when detached, a
+	// detached strip uses a private style, so nothing is held by a strip which
+	// is never attached.
+	private TabStyle mStyle;
+	private boolean mStyleAcquired = false;
+	
+	private boolean mAttached = false;
+	
+	// Pre-rendered titles, the text is drawn directly if null
+	private TabLabelCache mLabelCache;
+	
+	// One of FADING_EDGE_LAYER and FADING_EDGE_GRADIENT
+	private int mFadingEdgeMode = FADING_EDGE_LAYER;
+	
+	// Length of the fading edges, in pixels
+	private int mFadingEdgeLength;
+	
+	// The color the edges fade to in gradient mode, should be the background color
+	private int mFadingEdgeColor = 0xFF000000;
+	
+	// The gradient of the left edge, the right edge is drawn mirrored
+	private final Paint mFadingEdgePaint = new Paint();
+	private LinearGradient mFadingEdgeShader;
+	private int mFadingEdgeShaderLength = 0;
+	
+	// Receives performance metrics, nothing is measured if null
+	private TabMetricsListener mMetrics;
+	
+	// Work counters of the current frame, only used if mMetrics is set
+	private int mRequestLayoutCount = 0;
+	private int mMeasureCount = 0;
+	private int mTabsTouched = 0;
+	
+	private final DataSetObserver mDataSetObserver = new DataSetObserver() {
+		
+		@Override
+		public void onChanged() {
+			scheduleDatasetUpdate();
+		}
+		
+		@Override
+		public void onInvalidated() {
+			scheduleDatasetUpdate();
+		}
+	};
+	
+	private final Runnable mUpdateRunnable = new Runnable() {
+		
+		@Override
+		public void run() {
+			mUpdatePending = false;
+			updateTabs();
+		}
+	};
+	
 	
 	// These values will be passed to every child ({@link ViewPagerTab})
 	
@@ -68,6 +350,10 @@ public class ViewPagerTabs extends ViewGroup implements OnPageChangeListener {
 	
 	private float mTextSize = 14;
 	
+	// Height of the icons and space between icon and title, in pixels
+	private int mIconSize;
+	private int mIconPadding;
+	
 	
 	
 	public ViewPagerTabs(Context context) {
@@ -83,6 +369,10 @@ public class ViewPagerTabs extends ViewGroup implements OnPageChangeListener {
 		
 		mContext = context;
 		
+		final float density = getResources().getDisplayMetrics().density;
+		mIconSize = (int) (density * ICON_SIZE);
+		mIconPadding = (int) (density * ICON_PADDING);
+		
 		final TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.ViewPagerTabs, defStyle, 0);
 		
 		mBackgroundColorPressed = a.getColor(R.styleable.ViewPagerTabs_backgroundColorPressed, mBackgroundColorPressed);
@@ -102,11 +392,27 @@ public class ViewPagerTabs extends ViewGroup implements OnPageChangeListener {
 		
 		mOutsideOffset = a.getDimensionPixelSize(R.styleable.ViewPagerTabs_outsideOffset, mOutsideOffset);
 		
+		mIconSize = a.getDimensionPixelSize(R.styleable.ViewPagerTabs_iconSize, mIconSize);
+		mIconPadding = a.getDimensionPixelSize(R.styleable.ViewPagerTabs_iconPadding, mIconPadding);
+		
+		mRenderMode = a.getInt(R.styleable.ViewPagerTabs_renderMode, mRenderMode);
+		
+		mFadingEdgeMode = a.getInt(R.styleable.ViewPagerTabs_fadingEdgeMode, mFadingEdgeMode);
+		mFadingEdgeColor = a.getColor(R.styleable.ViewPagerTabs_fadingEdgeColor,
+		    a.getColor(R.styleable.ViewPagerTabs_backgroundColor, mFadingEdgeColor));
+		
 		a.recycle();
 		
-		setHorizontalFadingEdgeEnabled(true);
-		setFadingEdgeLength((int) (getResources().getDisplayMetrics().density * SHADOW_WIDTH));
+		mFadingEdgeLength = (int) (getResources().getDisplayMetrics().density * SHADOW_WIDTH);
+		
+		setHorizontalFadingEdgeEnabled(mFadingEdgeMode == FADING_EDGE_LAYER);
+		setFadingEdgeLength(mFadingEdgeLength);
 		setWillNotDraw(false);
+		
+		if (mRenderMode == RENDER_MODE_CANVAS) {
+			setFocusable(true);
+			applyCanvasStyle();
+		}
 	}
 	
 	@Override
@@ -119,25 +425,154 @@ public class ViewPagerTabs extends ViewGroup implements OnPageChangeListener {
 		return 1.0f;
 	}
 	
+	/**
+	 * Sets how the edges of the strip are faded. {@link #FADING_EDGE_GRADIENT}
+	 * draws a precomputed gradient over the edges instead of fading the
+	 * content in an offscreen layer, so the fading edge color should match
+	 * the background.
+	 * 
+	 * @param mode
+	 *          {@link #FADING_EDGE_LAYER} or {@link #FADING_EDGE_GRADIENT}
+	 */
+	public void setFadingEdgeMode(int mode) {
+		if (mFadingEdgeMode == mode) return;
+		
+		mFadingEdgeMode = mode;
+		
+		setHorizontalFadingEdgeEnabled(mode == FADING_EDGE_LAYER);
+		setFadingEdgeLength(mFadingEdgeLength);
+		invalidate();
+	}
+	
+	public int getFadingEdgeMode() {
+		return mFadingEdgeMode;
+	}
 	
 	/**
-	 * Notify the view that new data is available.
+	 * Sets the color the edges fade to in {@link #FADING_EDGE_GRADIENT} mode
 	 */
-	public void notifyDatasetChanged() {
+	public void setFadingEdgeColor(int color) {
+		if (mFadingEdgeColor == color) return;
 		
-		// remove all old child views
-		this.removeAllViews();
+		mFadingEdgeColor = color;
+		mFadingEdgeShader = null;
+		invalidate();
+	}
+	
+	public int getFadingEdgeColor() {
+		return mFadingEdgeColor;
+	}
+	
+	/**
+	 * Draws the fading edges in gradient mode. Like the framework, the edges
+	 * are at most half of the width long.
+	 */
+	private void drawFadingEdges(Canvas canvas) {
+		
+		final int width = getWidth();
+		final int length = Math.min(mFadingEdgeLength, width / 2);
+		
+		if (length <= 0) return;
+		
+		final Paint paint = mFadingEdgePaint;
+		
+		if (mFadingEdgeShader == null || mFadingEdgeShaderLength != length) {
+			mFadingEdgeShader = new LinearGradient(0, 0, length, 0, mFadingEdgeColor | 0xFF000000,
+			    mFadingEdgeColor & 0x00FFFFFF, Shader.TileMode.CLAMP);
+			mFadingEdgeShaderLength = length;
+			paint.setShader(mFadingEdgeShader);
+		}
+		
+		final int top = this.getPaddingTop();
+		final int bottom = getHeight() - this.getPaddingBottom();
+		
+		canvas.drawRect(0, top, length, bottom, paint);
+		
+		final int saveCount = canvas.save();
+		canvas.translate(width, 0);
+		canvas.scale(-1, 1);
+		canvas.drawRect(0, top, length, bottom, paint);
+		canvas.restoreToCount(saveCount);
+	}
+	
+	
+	/**
+	 * Notify the view that new data is available. Only tabs whose title
+	 * changed are re-measured, unchanged tabs are kept as they are.
+	 * 
+	 * If the pager's adapter implements {@link ObservableViewPagerTabProvider}
+	 * this is done automatically.
+	 */
+	public void notifyDatasetChanged() {
 		
-		// add new tabs
-		for (int i = 0; i < mPager.getAdapter().getCount(); i++) {
-			addTab(i, ((ViewPagerTabProvider) mPager.getAdapter()).getTitle(i));
+		if (mUpdatePending) {
+			removeCallbacks(mUpdateRunnable);
+			mUpdatePending = false;
 		}
 		
-		applyStyles();
+		updateTabs();
+	}
+	
+	/**
+	 * Coalesces multiple changes of the dataset into one update, which runs
+	 * before the next frame is drawn
+	 */
+	private void scheduleDatasetUpdate() {
+		if (mUpdatePending || mPager == null) return;
+		
+		mUpdatePending = true;
+		post(mUpdateRunnable);
+	}
+	
+	/**
+	 * Enables or disables the virtualized mode. In virtualized mode only the
+	 * tabs which can come to screen (two on each side of the current one) are
+	 * kept as child views, the others are created on demand while paging.
+	 * 
+	 * @param virtualized
+	 *          true to keep only the visible window of tabs attached
+	 */
+	public void setVirtualized(boolean virtualized) {
+		if (mVirtualized == virtualized) return;
+		
+		mVirtualized = virtualized;
+		
+		if (mPager != null) notifyDatasetChanged();
+	}
+	
+	public boolean isVirtualized() {
+		return mVirtualized;
+	}
+	
+	/**
+	 * Sets how the tabs are rendered. In {@link #RENDER_MODE_CANVAS} the strip
+	 * draws the labels, lines and pressed backgrounds of the visible tabs in
+	 * one pass, without a child view per tab. The styles are the same in both
+	 * modes.
+	 * 
+	 * @param mode
+	 *          {@link #RENDER_MODE_VIEWS} or {@link #RENDER_MODE_CANVAS}
+	 */
+	public void setRenderMode(int mode) {
+		if (mRenderMode == mode) return;
+		
+		mRenderMode = mode;
 		
-		calculateNewPositions(true);
-		this.requestLayout();
+		setFocusable(mode == RENDER_MODE_CANVAS);
+		
+		if (mode == RENDER_MODE_CANVAS) {
+			recycleAllTabs();
+			applyCanvasStyle();
+		} else {
+			mCanvasCount = 0;
+			mPressedPosition = -1;
+		}
 		
+		if (mPager != null) notifyDatasetChanged();
+	}
+	
+	public int getRenderMode() {
+		return mRenderMode;
 	}
 	
 	/**
@@ -148,14 +583,35 @@ public class ViewPagerTabs extends ViewGroup implements OnPageChangeListener {
 	 */
 	public void setViewPager(ViewPager pager) {
 		
-		if (!(pager.getAdapter() instanceof ViewPagerTabProvider)) {
-			throw new IllegalStateException("The pager's adapter has to implement ViewPagerTabProvider.");
+		final PagerAdapter adapter = pager.getAdapter();
+		
+		if (!(adapter instanceof ViewPagerTabProvider) && !(adapter instanceof AsyncViewPagerTabProvider)) {
+			throw new IllegalStateException(
+			    "The pager's adapter has to implement ViewPagerTabProvider or AsyncViewPagerTabProvider.");
+		}
+		
+		unregisterDataSetObserver();
+		
+		if (adapter instanceof AsyncViewPagerTabProvider) {
+			mTitleLoader = new TabTitleLoader((AsyncViewPagerTabProvider) adapter, mTitleCacheSize, mTitleCallback);
+		} else {
+			mTitleLoader = null;
+		}
+		
+		if (mIconLoader != null) mIconLoader.cancel();
+		
+		if (adapter instanceof IconViewPagerTabProvider) {
+			mIconLoader = new TabIconLoader((IconViewPagerTabProvider) adapter, mIconCacheSize, mIconSize, mIconCallback);
+		} else {
+			mIconLoader = null;
 		}
 		
 		this.mPager = pager;
 		mPager.setCurrentItem(this.mPosition);
 		mPager.setOnPageChangeListener(this);
 		
+		registerDataSetObserver();
+		
 		notifyDatasetChanged();
 	}
 	
@@ -172,6 +628,77 @@ public class ViewPagerTabs extends ViewGroup implements OnPageChangeListener {
 		setViewPager(pager);
 	}
 	
+	private void registerDataSetObserver() {
+		if (mObservedProvider != null || mPager == null) return;
+		
+		final PagerAdapter adapter = mPager.getAdapter();
+		
+		if (adapter instanceof ObservableViewPagerTabProvider) {
+			mObservedProvider = (ObservableViewPagerTabProvider) adapter;
+			mObservedProvider.registerDataSetObserver(mDataSetObserver);
+		}
+	}
+	
+	private void unregisterDataSetObserver() {
+		if (mObservedProvider == null) return;
+		
+		mObservedProvider.unregisterDataSetObserver(mDataSetObserver);
+		mObservedProvider = null;
+	}
+	
+	@Override
+	protected void onAttachedToWindow() {
+		super.onAttachedToWindow();
+		registerDataSetObserver();
+		
+		getViewTreeObserver().addOnPreDrawListener(mPreDrawListener);
+		
+		// replaces the private style of the detached strip by the shared one
+		mAttached = true;
+		releaseStyle();
+		
+		final TabStyle style = getStyle();
+		final int count = getChildCount();
+		for (int i = 0; i < count; i++) {
+			((ViewPagerTab) getChildAt(i)).setStyle(style);
+		}
+		
+		if (mMeasurePending) startAsyncMeasurement();
+		
+		// the observer missed the changes of the adapter while detached
+		scheduleDatasetUpdate();
+	}
+	
+	@Override
+	protected void onDetachedFromWindow() {
+		super.onDetachedFromWindow();
+		unregisterDataSetObserver();
+		
+		final ViewTreeObserver observer = getViewTreeObserver();
+		if (observer.isAlive()) observer.removeOnPreDrawListener(mPreDrawListener);
+		
+		mAttached = false;
+		releaseStyle();
+		
+		if (mUpdatePending) {
+			removeCallbacks(mUpdateRunnable);
+			mUpdatePending = false;
+		}
+		
+		if (mAnimating) {
+			mAnimating = false;
+			mEngine.animate(1.0f);
+			releaseLeavingTabs();
+		}
+		
+		// restart the measurement when attached again
+		if (mMeasureJob != null) {
+			mMeasureJob.cancel();
+			mMeasureJob = null;
+			mMeasurePending = true;
+		}
+	}
+	
 	/**
 	 * Returns the current position
 	 */
@@ -189,99 +716,1036 @@ public class ViewPagerTabs extends ViewGroup implements OnPageChangeListener {
 	 *          The title which should be used
 	 */
 	public void addTab(int index, String title) {
-		ViewPagerTab tab = new ViewPagerTab(mContext);
+		addTab(index, title, getBoundCount());
+	}
+	
+	private ViewPagerTab addTab(int index, String title, int childIndex) {
+		ViewPagerTab tab = obtainTab();
 		tab.setText(title);
 		tab.setIndex(index);
-		addView(tab);
-		
-		tab.setOnClickListener(new OnClickListener() {
-			
-			@Override
-			public void onClick(View v) {
-				mPager.setCurrentItem(((ViewPagerTab) v).getIndex());
-			}
-		});
+		tab.setTabId(getStableId(index));
+		addView(tab, childIndex);
+		return tab;
 	}
 	
-	
-	@Override
-	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-		
-		final View c = getChildAt(0);
+	/**
+	 * Returns the stable id of the given position, or -1 if the adapter
+	 * doesn't provide stable ids
+	 */
+	private long getStableId(int position) {
+		final PagerAdapter adapter = mPager != null ? mPager.getAdapter() : null;
 		
-		if (c != null) {
-			final TextView tab = (TextView) c;
-			LayoutParams layoutParams = (LayoutParams) tab.getLayoutParams();
-			final int widthSpec = MeasureSpec.makeMeasureSpec(layoutParams.width, MeasureSpec.EXACTLY);
-			final int heightSpec = MeasureSpec.makeMeasureSpec(layoutParams.height, MeasureSpec.EXACTLY);
-			tab.measure(widthSpec, heightSpec);
-			
-			setMeasuredDimension(resolveSize(0, widthMeasureSpec),
-			    resolveSize(tab.getMeasuredHeight() + this.getPaddingTop() + this.getPaddingBottom(), heightMeasureSpec));
-			
-		} else {
-			setMeasuredDimension(resolveSize(0, widthMeasureSpec),
-			    resolveSize(this.getPaddingTop() + this.getPaddingBottom(), heightMeasureSpec));
+		if (adapter instanceof ObservableViewPagerTabProvider
+		    && ((ObservableViewPagerTabProvider) adapter).hasStableIds()) {
+			return ((ObservableViewPagerTabProvider) adapter).getTabId(position);
 		}
 		
-		// first time measuring, set outside offset (if not set manually),
-		// measure children and calculate initial positions
-		if (isFirstMeasurement) {
-			isFirstMeasurement = false;
-			if (mOutsideOffset < 0) mOutsideOffset = getMeasuredWidth();
-			
-			measureChildren();
-			
-			calculateNewPositions(true);
+		return -1;
+	}
+	
+	/**
+	 * Returns a recycled tab or creates a new one
+	 */
+	private ViewPagerTab obtainTab() {
+		final int size = mRecycledTabs.size();
+		
+		if (size > 0) {
+			ViewPagerTab tab = mRecycledTabs.remove(size - 1);
+			tab.setCenterPercent(0);
+			tab.setMeasurePending(false);
+			tab.setWidthPending(false);
+			tab.setPressed(false);
+			return tab;
 		}
 		
+		ViewPagerTab tab = new ViewPagerTab(mContext);
+		
+		// taps are handled by the strip, the listener serves clicks from the
+		// d-pad and from accessibility services
+		tab.setOnClickListener(mTabClickListener);
+		
+		return tab;
 	}
 	
+	private void recycleTab(ViewPagerTab tab) {
+		if (mRecycledTabs.size() < MAX_RECYCLED_TABS) mRecycledTabs.add(tab);
+	}
 	
-	private void measureChildren() {
-		final int count = this.getChildCount();
-		
-		for (int i = 0; i < count; i++) {
-			LayoutParams layoutParams = (LayoutParams) getChildAt(i).getLayoutParams();
-			final int widthSpec = MeasureSpec.makeMeasureSpec(layoutParams.width, MeasureSpec.EXACTLY);
-			final int heightSpec = MeasureSpec.makeMeasureSpec(layoutParams.height, MeasureSpec.EXACTLY);
-			getChildAt(i).measure(widthSpec, heightSpec);
+	private void recycleAllTabs() {
+		for (int i = getChildCount() - 1; i >= 0; i--) {
+			recycleTab((ViewPagerTab) getChildAt(i));
 		}
+		this.removeAllViews();
+		mLeavingTabs.clear();
+		mFirstBound = 0;
 	}
 	
+	/**
+	 * Returns the number of children which are bound to the window, the
+	 * leaving tabs follow them
+	 */
+	private int getBoundCount() {
+		return getChildCount() - mLeavingTabs.size();
+	}
 	
-	@Override
-	protected void onLayout(boolean changed, int l, int t, int r, int b) {
-		
-		final int count = getChildCount();
+	private boolean bindTabs() {
+		return bindTabs(false);
+	}
+	
+	/**
+	 * Makes sure that exactly the tabs in the current window are bound as
+	 * children. In normal mode the window covers every page.
+	 * 
+	 * @param keepLeaving
+	 *          If true, the tabs which leave the window stay attached as
+	 *          leaving tabs until releaseLeavingTabs() is called
+	 * @return true if tabs were added or removed
+	 */
+	private boolean bindTabs(boolean keepLeaving) {
+		
+		final int first = mVirtualized ? Math.max(0, mPosition - WINDOW_RADIUS) : 0;
+		final int last = mVirtualized ? Math.min(mTabCount - 1, mPosition + WINDOW_RADIUS) : mTabCount - 1;
+		
+		boolean changed = false;
+		
+		// detach tabs left of the window
+		while (getBoundCount() > 0 && (mFirstBound < first || mFirstBound > last)) {
+			unbindTab(0, keepLeaving);
+			mFirstBound++;
+			changed = true;
+		}
+		
+		// detach tabs right of the window
+		while (getBoundCount() > 0 && mFirstBound + getBoundCount() - 1 > last) {
+			unbindTab(getBoundCount() - 1, keepLeaving);
+			changed = true;
+		}
+		
+		if (getBoundCount() == 0) mFirstBound = first;
+		
+		// attach missing tabs left of the bound ones
+		while (mFirstBound > first) {
+			mFirstBound--;
+			bindTab(addTab(mFirstBound, getTitle(mFirstBound), 0));
+			changed = true;
+		}
+		
+		// attach missing tabs right of the bound ones
+		for (int i = mFirstBound + getBoundCount(); i <= last; i++) {
+			bindTab(addTab(i, getTitle(i), getBoundCount()));
+			changed = true;
+		}
+		
+		return changed;
+	}
+	
+	/**
+	 * Removes the bound child at the given index, or moves it behind the
+	 * bound ones if it is kept as a leaving tab
+	 */
+	private void unbindTab(int index, boolean keepLeaving) {
+		final ViewPagerTab tab = (ViewPagerTab) getChildAt(index);
+		
+		if (keepLeaving) {
+			detachViewFromParent(index);
+			attachViewToParent(tab, getChildCount(), tab.getLayoutParams());
+			mLeavingTabs.add(tab);
+		} else {
+			removeViewAt(index);
+			recycleTab(tab);
+		}
+	}
+	
+	/**
+	 * Removes the tabs which were kept for the jump animation
+	 */
+	private void releaseLeavingTabs() {
+		final ArrayList<ViewPagerTab> leaving = mLeavingTabs;
+		
+		if (leaving.isEmpty()) return;
+		
+		// the bound tabs don't depend on them, no layout pass is needed
+		for (int i = leaving.size() - 1; i >= 0; i--) {
+			final ViewPagerTab tab = leaving.get(i);
+			removeViewInLayout(tab);
+			recycleTab(tab);
+		}
+		
+		leaving.clear();
+		invalidate();
+	}
+	
+	/**
+	 * Brings the tabs up to date with the adapter. Before the strip has been
+	 * measured for the first time nothing is done, the tabs are built by the
+	 * first onMeasure instead.
+	 */
+	private void updateTabs() {
+		
+		if (isFirstMeasurement) {
+			mTabsInvalid = true;
+			this.requestLayout();
+			return;
+		}
+		
+		if (bindAdapter()) {
+			calculateNewPositions(true);
+			this.requestLayout();
+		}
+		
+		// a detach/attach cycle doesn't redraw the children by itself
+		invalidate();
+	}
+	
+	/**
+	 * Diffs the attached tabs against the adapter. Tabs are matched by their
+	 * stable id if the adapter provides one, by position otherwise. Only new
+	 * tabs and tabs whose title changed are measured again.
+	 * 
+	 * @return true if the positions have to be calculated again
+	 */
+	private boolean bindAdapter() {
+		
+		final PagerAdapter adapter = mPager.getAdapter();
+		
+		final boolean stableIds = adapter instanceof ObservableViewPagerTabProvider
+		    && ((ObservableViewPagerTabProvider) adapter).hasStableIds();
+		
+		releaseLeavingTabs();
+		
+		final int oldFirst = mFirstBound;
+		final int oldCount = getChildCount();
+		
+		mTabCount = adapter.getCount();
+		mPosition = Math.max(0, Math.min(mPager.getCurrentItem(), mTabCount - 1));
+		
+		mEngine.setTabCount(mTabCount);
+		
+		if (mTitleLoader != null) mTitleLoader.reset(mTabCount);
+		
+		if (mRenderMode == RENDER_MODE_CANVAS) {
+			bindCanvasAdapter();
+			return true;
+		}
+		
+		final int first = mVirtualized ? Math.max(0, mPosition - WINDOW_RADIUS) : 0;
+		final int last = mVirtualized ? Math.min(mTabCount - 1, mPosition + WINDOW_RADIUS) : mTabCount - 1;
+		
+		// detach the old tabs, they will be reattached if they are still needed
+		final ArrayList<ViewPagerTab> scrap = mScrapTabs;
+		final HashMap<Long, ViewPagerTab> scrapById = mScrapTabsById;
+		
+		for (int i = 0; i < oldCount; i++) {
+			final ViewPagerTab tab = (ViewPagerTab) getChildAt(i);
+			scrap.add(tab);
+			if (stableIds) scrapById.put(tab.getTabId(), tab);
+		}
+		
+		detachAllViewsFromParent();
+		
+		boolean changed = oldFirst != first || oldCount != last - first + 1;
+		
+		for (int i = first; i <= last; i++) {
+			
+			final long id = stableIds ? ((ObservableViewPagerTabProvider) adapter).getTabId(i) : -1;
+			
+			ViewPagerTab tab;
+			
+			if (stableIds) {
+				tab = scrapById.remove(id);
+			} else {
+				tab = i - oldFirst >= 0 && i - oldFirst < oldCount ? scrap.get(i - oldFirst) : null;
+			}
+			
+			final String title = getTitle(i);
+			final int childIndex = i - first;
+			
+			if (tab != null) {
+				
+				attachViewToParent(tab, childIndex, tab.getLayoutParams());
+				
+				if (tab.getIndex() != i) {
+					tab.setIndex(i);
+					changed = true;
+				}
+				
+				final boolean iconChanged = bindIcon(tab);
+				
+				if (!TextUtils.equals(tab.getText(), title)) {
+					evictLabel(tab.getText());
+					tab.setText(title);
+					requestMeasure(tab);
+					changed = true;
+				} else if (iconChanged) {
+					requestMeasure(tab);
+					changed = true;
+				} else if (tab.isMeasurePending()) {
+					// the view hasn't been measured, its width isn't known from it
+					requestMeasure(tab);
+				} else {
+					mEngine.setTabWidth(i, tab.getMeasuredWidth());
+				}
+				
+			} else {
+				
+				tab = obtainTab();
+				tab.setText(title);
+				tab.setIndex(i);
+				addViewInLayout(tab, childIndex, generateDefaultLayoutParams(), true);
+				bindTab(tab);
+				changed = true;
+				
+			}
+			
+			tab.setTabId(id);
+		}
+		
+		// tabs which have not been reattached are not needed anymore
+		for (int i = 0; i < oldCount; i++) {
+			final ViewPagerTab tab = scrap.get(i);
+			if (tab.getParent() == null) {
+				removeDetachedView(tab, false);
+				recycleTab(tab);
+			}
+		}
+		
+		scrap.clear();
+		scrapById.clear();
+		
+		mFirstBound = first;
+		
+		if (mTitleLoader != null) mTitleLoader.request(mPosition, TabPositionEngine.DIRECTION_CENTER);
+		
+		if (mMeasurePending) startAsyncMeasurement();
+		
+		requestIcons();
+		
+		return changed;
+	}
+	
+	/**
+	 * Rebinds the titles of the window in canvas mode
+	 */
+	private void bindCanvasAdapter() {
+		mCanvasCount = 0;
+		bindCanvasTabs();
+		
+		if (mTitleLoader != null) mTitleLoader.request(mPosition, TabPositionEngine.DIRECTION_CENTER);
+	}
+	
+	/**
+	 * Keeps the titles of the tabs in the window in canvas mode. Titles which
+	 * are still in the window are neither loaded nor measured again.
+	 * 
+	 * @return true if the window changed
+	 */
+	private boolean bindCanvasTabs() {
+		
+		final int first = Math.max(0, mPosition - WINDOW_RADIUS);
+		final int count = Math.max(0, Math.min(mTabCount - 1, mPosition + WINDOW_RADIUS) - first + 1);
+		
+		if (first == mCanvasFirst && count == mCanvasCount) return false;
+		
+		final String[] titles = mCanvasTitles;
+		final String[] scratch = mCanvasScratch;
+		
+		for (int k = 0; k < count; k++) {
+			final int i = first + k;
+			final int old = i - mCanvasFirst;
+			
+			if (old >= 0 && old < mCanvasCount) {
+				scratch[k] = titles[old];
+			} else {
+				scratch[k] = getTitle(i);
+				measureCanvasTab(i, scratch[k]);
+			}
+		}
+		
+		System.arraycopy(scratch, 0, titles, 0, count);
+		
+		mCanvasFirst = first;
+		mCanvasCount = count;
+		
+		return true;
+	}
+	
+	/**
+	 * Styles and measures a freshly attached tab
+	 */
+	private void bindTab(ViewPagerTab tab) {
+		applyStyle(tab);
+		requestMeasure(tab);
+	}
+	
+	/**
+	 * Returns the attached tab for the given adapter position, or null if the
+	 * position is neither in the bound window nor leaving it
+	 */
+	private ViewPagerTab getTab(int position) {
+		final int index = position - mFirstBound;
+		if (index >= 0 && index < getBoundCount()) return (ViewPagerTab) getChildAt(index);
+		
+		final ArrayList<ViewPagerTab> leaving = mLeavingTabs;
+		for (int n = leaving.size() - 1; n >= 0; n--) {
+			if (leaving.get(n).getIndex() == position) return leaving.get(n);
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Returns the title of the given position. Titles of an
+	 * {@link AsyncViewPagerTabProvider} which haven't been loaded yet are empty.
+	 */
+	private String getTitle(int position) {
+		if (mTitleLoader != null) {
+			final String title = mTitleLoader.getTitle(position);
+			return title != null ? title : "";
+		}
+		return ((ViewPagerTabProvider) mPager.getAdapter()).getTitle(position);
+	}
+	
+	/**
+	 * Updates the attached tabs in the given range whose title changed. The
+	 * positions are only calculated again if the width of a tab in the window
+	 * changed.
+	 * 
+	 * @param from
+	 *          First position, inclusive
+	 * @param to
+	 *          Last position, exclusive
+	 */
+	private void applyTitles(int from, int to) {
+		
+		final TabPositionEngine engine = mEngine;
+		
+		boolean changed = false;
+		boolean resized = false;
+		
+		if (mRenderMode == RENDER_MODE_CANVAS) {
+			
+			final int end = Math.min(to, mCanvasFirst + mCanvasCount);
+			
+			for (int i = Math.max(from, mCanvasFirst); i < end; i++) {
+				final String title = getTitle(i);
+				
+				if (!TextUtils.equals(mCanvasTitles[i - mCanvasFirst], title)) {
+					evictLabel(mCanvasTitles[i - mCanvasFirst]);
+					mCanvasTitles[i - mCanvasFirst] = title;
+					
+					final int width = engine.getTabWidth(i);
+					measureCanvasTab(i, title);
+					
+					if (engine.getTabWidth(i) != width) resized = true;
+					changed = true;
+				}
+			}
+			
+		} else {
+			
+			final int first = Math.max(from, mFirstBound);
+			final int last = Math.min(to, mFirstBound + getBoundCount());
+			
+			for (int i = first; i < last; i++) {
+				final ViewPagerTab tab = getTab(i);
+				final String title = getTitle(i);
+				
+				if (!TextUtils.equals(tab.getText(), title)) {
+					evictLabel(tab.getText());
+					tab.setText(title);
+					
+					final int width = engine.getTabWidth(i);
+					requestMeasure(tab);
+					
+					if (!tab.isMeasurePending() && engine.getTabWidth(i) != width) {
+						if (Math.abs(i - mPosition) <= WINDOW_RADIUS) {
+							resized = true;
+						} else {
+							// tabs outside the window only move to their new resting position
+							layoutTab(tab);
+						}
+					}
+					changed = true;
+				}
+			}
+			
+		}
+		
+		if (mMeasurePending) startAsyncMeasurement();
+		
+		if (resized) {
+			// while scrolling, the tabs move to their new positions with the next scroll
+			calculateNewPositions(mScrollState == ViewPager.SCROLL_STATE_IDLE);
+			this.requestLayout();
+		}
+		
+		if (changed) invalidate();
+	}
+	
+	/**
+	 * Loads the title of the given position again, e.g. if it contains a
+	 * counter. Only this tab is measured again.
+	 */
+	public void refreshTitle(int position) {
+		refreshTitles(position, position + 1);
+	}
+	
+	/**
+	 * Loads the titles of the given range again. Only tabs whose title changed
+	 * are measured again, positions are only calculated again if a tab in the
+	 * visible window changed its width.
+	 * 
+	 * @param from
+	 *          First position, inclusive
+	 * @param to
+	 *          Last position, exclusive
+	 */
+	public void refreshTitles(int from, int to) {
+		if (mPager == null) return;
+		
+		from = Math.max(0, from);
+		to = Math.min(mTabCount, to);
+		
+		if (mTitleLoader != null) {
+			// the stale titles are shown until the new ones arrive
+			mTitleLoader.invalidate(from, to);
+			mTitleLoader.request(mPosition, mScrollDirection);
+		} else {
+			applyTitles(from, to);
+		}
+	}
+	
+	/**
+	 * Enables drawing the titles from pre-rendered bitmaps, which are only
+	 * tinted with the interpolated text color while scrolling. Labels are
+	 * evicted if their title, the text size or the density changes.
+	 * 
+	 * @param maxBytes
+	 *          Memory limit of the rendered labels, 0 to draw the text directly
+	 */
+	public void setLabelCacheSize(int maxBytes) {
+		
+		if (mLabelCache != null && mLabelCache.maxSize() == maxBytes) return;
+		
+		mLabelCache = maxBytes > 0 ? new TabLabelCache(maxBytes) : null;
+		
+		final int count = getChildCount();
+		
+		for (int i = 0; i < count; i++) {
+			((ViewPagerTab) getChildAt(i)).setLabelCache(mLabelCache);
+		}
+		
+		invalidate();
+	}
+	
+	/**
+	 * Returns the cache of pre-rendered titles, which reports its memory usage,
+	 * or null if it's disabled
+	 */
+	public TabLabelCache getLabelCache() {
+		return mLabelCache;
+	}
+	
+	private void evictLabel(CharSequence title) {
+		if (mLabelCache != null && title != null) mLabelCache.remove(title.toString());
+	}
+	
+	/**
+	 * Sets the maximum number of titles of an {@link AsyncViewPagerTabProvider}
+	 * which are cached. Takes effect when the pager is bound the next time.
+	 */
+	public void setTitleCacheSize(int size) {
+		mTitleCacheSize = size;
+	}
+	
+	/**
+	 * Sets the memory limit of the icons of an
+	 * {@link IconViewPagerTabProvider}. Takes effect when the pager is bound
+	 * the next time.
+	 */
+	public void setIconCacheSize(int maxBytes) {
+		mIconCacheSize = maxBytes;
+	}
+	
+	
+	/**
+	 * Sets the icon of the tab from the adapter. The width of an icon which
+	 * hasn't been decoded yet is the icon size, afterwards it's the width of
+	 * the icon scaled to the icon size. Icons are only shown in views mode.
+	 * 
+	 * @return true if the width of the tab changed
+	 */
+	private boolean bindIcon(ViewPagerTab tab) {
+		
+		final int space = tab.getIconSpace();
+		
+		final String key = mIconLoader != null ? mIconLoader.getProvider().getIconKey(tab.getIndex()) : null;
+		
+		int width = mIconSize;
+		
+		final Bitmap icon = key != null ? mIconLoader.get(key) : null;
+		if (icon != null && icon.getHeight() > 0) width = icon.getWidth() * mIconSize / icon.getHeight();
+		
+		tab.setIcon(mIconLoader, key, width, mIconSize, mIconPadding);
+		applyPadding(tab);
+		
+		return tab.getIconSpace() != space;
+	}
+	
+	/**
+	 * Starts decoding the icons of the tabs around the current position. The
+	 * tabs of icons which are already cached get their final width.
+	 */
+	private void requestIcons() {
+		
+		if (mIconLoader == null || mRenderMode != RENDER_MODE_VIEWS) return;
+		
+		for (int i = mPosition - ICON_RADIUS; i <= mPosition + ICON_RADIUS; i++) {
+			final ViewPagerTab tab = getTab(i);
+			final String key = tab != null ? tab.getIconKey() : null;
+			if (key != null) mIconLoader.load(i, key);
+		}
+		
+		applyIcons(null);
+	}
+	
+	/**
+	 * Redraws the attached tabs which show the icon, they draw the placeholder
+	 * from now on
+	 */
+	private void invalidateIcon(String key) {
+		final int count = getChildCount();
+		for (int i = 0; i < count; i++) {
+			final ViewPagerTab tab = (ViewPagerTab) getChildAt(i);
+			if (key.equals(tab.getIconKey())) tab.invalidate();
+		}
+	}
+	
+	/**
+	 * Updates the tabs around the current position with a decoded icon. Like
+	 * for titles, positions are only calculated again if a tab in the window
+	 * changed its width.
+	 * 
+	 * @param key
+	 *          The decoded icon, or null to update all tabs
+	 */
+	private void applyIcons(String key) {
+		
+		final TabPositionEngine engine = mEngine;
+		
+		boolean resized = false;
+		
+		for (int i = mPosition - ICON_RADIUS; i <= mPosition + ICON_RADIUS; i++) {
+			final ViewPagerTab tab = getTab(i);
+			
+			if (tab == null || tab.getIconKey() == null || (key != null && !key.equals(tab.getIconKey()))) continue;
+			
+			// the placeholder is replaced without touching the layout
+			if (key != null) tab.invalidate();
+			
+			if (!bindIcon(tab)) continue;
+			
+			final int width = engine.getTabWidth(i);
+			measureTab(tab);
+			
+			if (engine.getTabWidth(i) == width) continue;
+			
+			if (Math.abs(i - mPosition) <= WINDOW_RADIUS) {
+				resized = true;
+			} else {
+				layoutTab(tab);
+			}
+		}
+		
+		if (resized) {
+			calculateNewPositions(mScrollState == ViewPager.SCROLL_STATE_IDLE);
+			this.requestLayout();
+		}
+	}
+	
+	
+	@Override
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+		
+		// the tabs are built here and not when the pager is bound, so a strip
+		// which is never shown costs nothing
+		final boolean built = mTabsInvalid;
+		
+		if (mTabsInvalid) {
+			mTabsInvalid = false;
+			bindAdapter();
+		}
+		
+		final View c = getChildAt(0);
+		
+		if (c != null) {
+			final TextView tab = (TextView) c;
+			LayoutParams layoutParams = (LayoutParams) tab.getLayoutParams();
+			final int widthSpec = MeasureSpec.makeMeasureSpec(layoutParams.width, MeasureSpec.EXACTLY);
+			final int heightSpec = MeasureSpec.makeMeasureSpec(layoutParams.height, MeasureSpec.EXACTLY);
+			tab.measure(widthSpec, heightSpec);
+			
+			if (mMetrics != null) mMeasureCount++;
+			
+			setMeasuredDimension(resolveSize(0, widthMeasureSpec),
+			    resolveSize(tab.getMeasuredHeight() + this.getPaddingTop() + this.getPaddingBottom(), heightMeasureSpec));
+			
+		} else {
+			// in canvas mode there are no children, the height comes from the font
+			final int tabHeight = mRenderMode == RENDER_MODE_CANVAS ? mTabHeight : 0;
+			setMeasuredDimension(resolveSize(0, widthMeasureSpec),
+			    resolveSize(tabHeight + this.getPaddingTop() + this.getPaddingBottom(), heightMeasureSpec));
+		}
+		
+		// first time measuring, set outside offset (if not set manually),
+		// measure children which were added by addTab(int, String) and
+		// calculate initial positions
+		if (isFirstMeasurement) {
+			isFirstMeasurement = false;
+			if (mOutsideOffset < 0) mOutsideOffset = getMeasuredWidth();
+			
+			if (!built) measureChildren();
+			
+			calculateNewPositions(true);
+		}
+		
+	}
+	
+	
+	private void measureChildren() {
+		final TabMetricsListener metrics = mMetrics;
+		final long start = metrics != null ? System.nanoTime() : 0;
+		
+		final int count = this.getChildCount();
+		
+		for (int i = 0; i < count; i++) {
+			requestMeasure((ViewPagerTab) getChildAt(i));
+		}
+		
+		if (mMeasurePending) startAsyncMeasurement();
+		
+		if (metrics != null) metrics.onEvent(TabMetricsListener.EVENT_MEASURE_CHILDREN, System.nanoTime() - start);
+	}
+	
+	/**
+	 * Measures the tab right away if it can come to screen. Otherwise its
+	 * width is taken from the restored snapshot or the {@link TabMeasureCache}
+	 * (an approximate one will do), or it is marked for background measurement
+	 * (if enabled). Such tabs are measured once they come to screen.
+	 */
+	private void requestMeasure(ViewPagerTab tab) {
+		
+		if (Math.abs(tab.getIndex() - mPosition) > WINDOW_RADIUS) {
+			
+			int width = getSnapshotWidth(tab.getIndex(), tab.getText());
+			
+			if (width == 0) {
+				final TabMeasureCache cache = TabMeasureCache.getInstance();
+				
+				long size = cache.get(measureKey(tab, false));
+				if (size == TabMeasureCache.MISS) size = cache.get(measureKey(tab, true));
+				
+				if (size != TabMeasureCache.MISS) width = TabMeasureCache.width(size);
+			}
+			
+			if (width > 0) {
+				mEngine.setTabWidth(tab.getIndex(), width);
+				tab.setMeasurePending(true);
+				return;
+			}
+			
+			if (mAsyncMeasurement && !mVirtualized) {
+				tab.setMeasurePending(true);
+				tab.setWidthPending(true);
+				mMeasurePending = true;
+				return;
+			}
+		}
+		
+		measureTab(tab);
+	}
+	
+	/**
+	 * Returns the width of a tab from the restored snapshot, or 0 if it is
+	 * unknown or the title has changed
+	 */
+	private int getSnapshotWidth(int position, CharSequence title) {
+		if (mSnapshotPositions == null) return 0;
+		
+		final int n = Arrays.binarySearch(mSnapshotPositions, position);
+		
+		if (n < 0) return 0;
+		
+		return mSnapshotHashes[n] == title.hashCode() ? mSnapshotWidths[n] : 0;
+	}
+	
+	/**
+	 * Measures the tabs in the window which are still waiting for their
+	 * background measurement
+	 * 
+	 * @return true if a tab has been measured
+	 */
+	private boolean measureWindow() {
+		boolean measured = false;
+		
+		for (int i = mPosition - WINDOW_RADIUS; i <= mPosition + WINDOW_RADIUS; i++) {
+			final ViewPagerTab tab = getTab(i);
+			if (tab != null && tab.isMeasurePending()) {
+				measureTab(tab);
+				measured = true;
+			}
+		}
+		
+		return measured;
+	}
+	
+	/**
+	 * Starts measuring the titles of all pending tabs in the background. The
+	 * tabs closest to the current position come first.
+	 */
+	private void startAsyncMeasurement() {
+		
+		mMeasurePending = false;
+		
+		if (mMeasureJob != null) {
+			mMeasureJob.cancel();
+			mMeasureJob = null;
+		}
+		
+		int pending = 0;
+		for (int i = getChildCount() - 1; i >= 0; i--) {
+			if (((ViewPagerTab) getChildAt(i)).isWidthPending()) pending++;
+		}
+		
+		if (pending == 0) return;
+		
+		final int[] positions = new int[pending];
+		final String[] titles = new String[pending];
+		
+		ViewPagerTab tab = null;
+		
+		// walk outwards from the current position
+		int n = 0;
+		for (int d = 0; n < pending; d++) {
+			for (int side = 0; side < 2; side++) {
+				final ViewPagerTab t = getTab(side == 0 ? mPosition + d : mPosition - d);
+				if (t != null && t.isWidthPending() && (side == 0 || d > 0)) {
+					positions[n] = t.getIndex();
+					titles[n] = t.getText().toString();
+					tab = t;
+					n++;
+				}
+			}
+		}
+		
+		if (mTitleMeasurer == null) mTitleMeasurer = TabTitlePaint.createMeasurer();
+		
+		mMeasureJob = mTitleMeasurer.measure(positions, titles, new TabTitlePaint(tab.getTextSize(), tab.getTypeface()),
+		    tab.getPaddingLeft() + tab.getPaddingRight(), mMeasureCallback);
+	}
+	
+	/**
+	 * Publishes the widths of a batch of background measured tabs to the
+	 * engine and the {@link TabMeasureCache}. The widths are measured from the
+	 * text alone, so they are cached as approximate ones. The views aren't
+	 * measured here, they stay pending until measureWindow() brings them to
+	 * screen, where the TextView measures itself.
+	 */
+	private void applyMeasuredWidths(int[] positions, int[] widths, int count) {
+		
+		final TabMeasureCache cache = TabMeasureCache.getInstance();
+		
+		// no tab has been measured yet, the height is unknown
+		if (mTabHeight == 0) measureWindow();
+		
+		for (int i = 0; i < count; i++) {
+			
+			final ViewPagerTab tab = getTab(positions[i]);
+			
+			if (tab == null || !tab.isWidthPending()) continue;
+			
+			cache.put(measureKey(tab, true), widths[i], mTabHeight);
+			mEngine.setTabWidth(positions[i], widths[i]);
+			tab.setWidthPending(false);
+		}
+	}
+	
+	/**
+	 * Enables measuring the tab titles on background threads. Only the tabs
+	 * which can come to screen are measured right away, the widths of the
+	 * others are filled in as they arrive. This has no effect in virtualized
+	 * mode, where only the visible tabs exist anyway.
+	 */
+	public void setAsyncMeasurement(boolean async) {
+		mAsyncMeasurement = async;
+	}
+	
+	public boolean isAsyncMeasurement() {
+		return mAsyncMeasurement;
+	}
+	
+	/**
+	 * Measures the tab, with its exact size if it is found in the
+	 * {@link TabMeasureCache}. The TextView still lays out its text then, the
+	 * cache only saves computing the width the title wants.
+	 */
+	private void measureTab(ViewPagerTab tab) {
 		
-		final int center = this.getMeasuredWidth() / 2;
+		final TabMeasureCache cache = TabMeasureCache.getInstance();
 		
-		// At this position, the centered tab will be highlighted via
-		// ViewPagerTab.setCenterPercent(int percent)
-		final int highlightOffset = this.getMeasuredWidth() / 5;
+		final TabMeasureCache.Key key = measureKey(tab, false);
 		
-		// lay out each tab
-		for (int i = 0; i < count; i++) {
+		final long size = cache.get(key);
+		
+		if (size != TabMeasureCache.MISS) {
+			final int widthSpec = MeasureSpec.makeMeasureSpec(TabMeasureCache.width(size), MeasureSpec.EXACTLY);
+			final int heightSpec = MeasureSpec.makeMeasureSpec(TabMeasureCache.height(size), MeasureSpec.EXACTLY);
+			tab.measure(widthSpec, heightSpec);
+		} else {
+			LayoutParams layoutParams = (LayoutParams) tab.getLayoutParams();
+			final int widthSpec = MeasureSpec.makeMeasureSpec(layoutParams.width, MeasureSpec.EXACTLY);
+			final int heightSpec = MeasureSpec.makeMeasureSpec(layoutParams.height, MeasureSpec.EXACTLY);
+			tab.measure(widthSpec, heightSpec);
 			
-			final ViewPagerTab tab = (ViewPagerTab) getChildAt(i);
+			cache.put(key, tab.getMeasuredWidth(), tab.getMeasuredHeight());
+		}
+		
+		if (mMetrics != null) mMeasureCount++;
+		
+		tab.setMeasurePending(false);
+		tab.setWidthPending(false);
+		mTabHeight = tab.getMeasuredHeight();
+		
+		mEngine.setTabWidth(tab.getIndex(), tab.getMeasuredWidth());
+	}
+	
+	private TabMeasureCache.Key measureKey(ViewPagerTab tab, boolean approximate) {
+		return new TabMeasureCache.Key(tab.getText().toString(), tab.getTextSize(), tab.getTypeface(),
+		    tab.getPaddingLeft(), tab.getPaddingTop(), tab.getPaddingRight(), tab.getPaddingBottom(), mLineHeight,
+		    approximate);
+	}
+	
+	/**
+	 * Measures the title of a tab in canvas mode. The text is measured with
+	 * the paint it is drawn with, so the width is cached as an approximate one
+	 * and never used to measure a {@link ViewPagerTab} exactly.
+	 */
+	private void measureCanvasTab(int position, String title) {
+		
+		// measured before the process was restarted
+		int width = getSnapshotWidth(position, title);
+		
+		if (width == 0) {
 			
-			final int tabCenter = tab.layoutPos + tab.getMeasuredWidth() / 2;
-			int diff = Math.abs(center - tabCenter);
+			final TabMeasureCache cache = TabMeasureCache.getInstance();
 			
-			if (diff <= highlightOffset) {
-				final int x1 = highlightOffset;
-				final int y = (int) 100 * diff / x1;
-				tab.setCenterPercent(100 - y);
+			final TextPaint paint = getStyle().getTextPaint(0);
+			
+			final TabMeasureCache.Key key = new TabMeasureCache.Key(title, paint.getTextSize(), paint.getTypeface(),
+			    mTabPaddingLeft, mTabPaddingTop, mTabPaddingRight, mLineHeight + mTabPaddingBottom - 4, mLineHeight,
+			    true);
+			
+			final long size = cache.get(key);
+			
+			if (size != TabMeasureCache.MISS) {
+				width = TabMeasureCache.width(size);
 			} else {
-				tab.setCenterPercent(0);
+				width = (int) Math.ceil(paint.measureText(title)) + mTabPaddingLeft + mTabPaddingRight;
+				cache.put(key, width, mTabHeight);
+			}
+			
+			if (mMetrics != null) mMeasureCount++;
+		}
+		
+		mEngine.setTabWidth(position, width);
+	}
+	
+	
+	@Override
+	protected void onLayout(boolean changed, int l, int t, int r, int b) {
+		
+		final TabMetricsListener metrics = mMetrics;
+		final long start = metrics != null ? System.nanoTime() : 0;
+		
+		final TabPositionEngine engine = mEngine;
+		
+		final int count = getChildCount();
+		final int top = this.getPaddingTop();
+		
+		// lay out each tab whose frame or content changed
+		for (int i = 0; i < count; i++) {
+			
+			final ViewPagerTab tab = (ViewPagerTab) getChildAt(i);
+			
+			if (!tab.isLayoutRequested() && tab.getTop() == top && tab.getWidth() == tab.getMeasuredWidth()
+			    && tab.getHeight() == tab.getMeasuredHeight() && !changed) {
+				
+				final int layoutPos = engine.getLayoutPos(tab.getIndex());
+				
+				if (tab.getLeft() == layoutPos) continue;
+				
+				// a tab resting outside of the strip is invisible on either side,
+				// the tabs passed by a jump stay where they are
+				if (isOutsideStrip(tab.getLeft(), tab.getWidth()) && isOutsideStrip(layoutPos, tab.getWidth())) continue;
 			}
 			
-			tab.layout(tab.layoutPos, this.getPaddingTop(), tab.layoutPos + tab.getMeasuredWidth(), this.getPaddingTop()
-			    + tab.getMeasuredHeight());
+			updateCenterPercent(tab);
+			
+			layoutTab(tab);
 			
+			if (metrics != null) mTabsTouched++;
 		}
 		
+		if (metrics != null) metrics.onEvent(TabMetricsListener.EVENT_LAYOUT, System.nanoTime() - start);
+		
+	}
+	
+	
+	/**
+	 * Returns true if a tab at the given position can't be seen
+	 */
+	private boolean isOutsideStrip(int left, int width) {
+		return left + width <= 0 || left >= this.getWidth();
+	}
+	
+	/**
+	 * Places the tab at its layout position
+	 */
+	private void layoutTab(ViewPagerTab tab) {
+		final int layoutPos = mEngine.getLayoutPos(tab.getIndex());
+		
+		tab.layout(layoutPos, this.getPaddingTop(), layoutPos + tab.getMeasuredWidth(), this.getPaddingTop()
+		    + tab.getMeasuredHeight());
+	}
+	
+	/**
+	 * Highlights the tab depending on how close its layout position is to the center
+	 */
+	private void updateCenterPercent(ViewPagerTab tab) {
+		tab.setCenterPercent(getCenterPercent(mEngine.getLayoutPos(tab.getIndex()), tab.getMeasuredWidth()));
+	}
+	
+	/**
+	 * Returns how close a tab at the given layout position is to the center
+	 */
+	private int getCenterPercent(int layoutPos, int width) {
+		
+		final int center = this.getMeasuredWidth() / 2;
+		
+		// At this position, the centered tab will be highlighted via
+		// ViewPagerTab.setCenterPercent(int percent)
+		final int highlightOffset = this.getMeasuredWidth() / 5;
+		
+		final int tabCenter = layoutPos + width / 2;
+		int diff = Math.abs(center - tabCenter);
+		
+		if (diff <= highlightOffset) {
+			final int x1 = highlightOffset;
+			final int y = (int) 100 * diff / x1;
+			return Math.max(0, 100 - y);
+		} else {
+			return 0;
+		}
 	}
 	
 	
@@ -292,204 +1756,602 @@ public class ViewPagerTabs extends ViewGroup implements OnPageChangeListener {
 	 *          If true, all tabs will be aligned at their initial position
 	 */
 	private void calculateNewPositions(boolean firstTime) {
+		calculateNewPositions(firstTime, false);
+	}
+	
+	/**
+	 * @param animated
+	 *          If true, the tabs are prepared to be animated from their layout
+	 *          position to their new position, see stepAnimation()
+	 */
+	private void calculateNewPositions(boolean firstTime, boolean animated) {
 		
-		final int pos = mPosition;
-		final int count = getChildCount();
+		final TabMetricsListener metrics = mMetrics;
+		final long start = metrics != null ? System.nanoTime() : 0;
+		
+		final TabPositionEngine engine = mEngine;
+		
+		engine.setStripWidth(this.getMeasuredWidth());
+		engine.setOutsideOffset(mOutsideOffset);
+		engine.setTabPadding(mTabPaddingLeft, mTabPaddingRight);
+		
+		if (animated) {
+			engine.calculateAnimated(mPosition);
+		} else {
+			engine.calculate(mPosition, firstTime);
+		}
+		
+		if (metrics != null) metrics.onEvent(TabMetricsListener.EVENT_CALCULATE_POSITIONS, System.nanoTime() - start);
+		
+	}
+	
+	
+	
+	@Override
+	public void onPageScrollStateChanged(int state) {
+		mScrollState = state;
+		
+		// the jump is over once the pager is idle or dragged again
+		if (state != ViewPager.SCROLL_STATE_SETTLING) mJumping = false;
+	}
+	
+	/**
+	 * Only records the scroll position, the pager may report several scrolls
+	 * per frame. The latest one is applied once, by the pre-draw listener of
+	 * the next frame (see applyScroll()). While the pager settles, it reports
+	 * its scroll from computeScroll() while it is drawn, then the tabs follow
+	 * one frame later.
+	 */
+	@Override
+	public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
+		
+		// the scroll position of a jump doesn't correspond to the tab positions
+		if (mJumping) return;
+		
+		mPendingScroll = position + positionOffset;
+		
+		if (!mScrollPending) {
+			mScrollPending = true;
+			this.invalidate();
+		}
+	}
+	
+	/**
+	 * At this point every child in the window is moved to its position at the
+	 * scroll position of the pager. The children are moved by offsetting
+	 * them, no measure or layout pass is needed while scrolling. This runs
+	 * before the frame is drawn, the invalidations it causes are part of the
+	 * same frame.
+	 */
+	private void applyScroll() {
+		
+		mScrollPending = false;
+		
+		final TabMetricsListener metrics = mMetrics;
+		final long start = metrics != null ? System.nanoTime() : 0;
+		
+		final float scroll = mPendingScroll;
+		
+		mEngine.layout(scroll);
+		
+		int dir = TabPositionEngine.DIRECTION_CENTER;
+		
+		if (scroll < mPosition) {
+			dir = TabPositionEngine.DIRECTION_LEFT;
+		} else if (scroll > mPosition) {
+			dir = TabPositionEngine.DIRECTION_RIGHT;
+		}
+		
+		// prefetch titles in the direction of swiping
+		if (dir != mScrollDirection) {
+			mScrollDirection = dir;
+			if (mTitleLoader != null) mTitleLoader.request(mPosition, dir);
+		}
+		
+		// in canvas mode the tabs are drawn at their layout positions
+		if (mRenderMode == RENDER_MODE_CANVAS) {
+			this.invalidate();
+			if (metrics != null) mTabsTouched += mCanvasCount;
+		} else {
+			moveTabs();
+		}
 		
+		if (metrics != null) metrics.onEvent(TabMetricsListener.EVENT_PAGE_SCROLLED, System.nanoTime() - start);
+	}
+	
+	/**
+	 * Moves the child tabs to their layout positions by offsetting them. Only
+	 * the tabs in the window and the ones moving out of it can change their
+	 * position, every other tab rests outside of the strip.
+	 */
+	private void moveTabs() {
+		
+		for (int i = mPosition - WINDOW_RADIUS; i <= mPosition + WINDOW_RADIUS; i++) {
+			final ViewPagerTab tab = getTab(i);
+			if (tab != null) moveTab(tab);
+		}
+		
+		final TabPositionEngine engine = mEngine;
+		
+		for (int n = engine.getLeavingCount() - 1; n >= 0; n--) {
+			final ViewPagerTab tab = getTab(engine.getLeavingPosition(n));
+			if (tab != null) moveTab(tab);
+		}
+	}
+	
+	/**
+	 * Moves the tab to its layout position, if it isn't there already
+	 */
+	private void moveTab(ViewPagerTab tab) {
+		final int offset = mEngine.getLayoutPos(tab.getIndex()) - tab.getLeft();
+		
+		if (offset == 0) return;
+		
+		tab.offsetLeftAndRight(offset);
+		updateCenterPercent(tab);
+		
+		if (mMetrics != null) mTabsTouched++;
+	}
+	
+	@Override
+	public void onPageSelected(int position) {
+		
+		// if pages are skipped, e.g. when a distant tab is tapped, the tabs are
+		// animated straight to their new positions
+		final boolean jump = Math.abs(position - mPosition) > 1;
+		
+		final int oldPosition = mPosition;
+		
+		mPosition = position;
+		
+		// tabs still leaving with a previous jump aren't animated anymore
+		releaseLeavingTabs();
+		
+		if (mRenderMode == RENDER_MODE_CANVAS) {
+			if (jump) {
+				System.arraycopy(mCanvasTitles, 0, mCanvasLeavingTitles, 0, mCanvasCount);
+				mCanvasLeavingFirst = mCanvasFirst;
+			}
+			bindCanvasTabs();
+			
+			if (mAccessibilityProvider != null) {
+				mAccessibilityProvider.invalidateRoot();
+				mAccessibilityProvider.sendEventForTab(position, AccessibilityEvent.TYPE_VIEW_SELECTED);
+			} else {
+				sendAccessibilityEvent(AccessibilityEvent.TYPE_VIEW_SELECTED);
+			}
+		} else {
+			// only newly bound tabs and tabs which were still waiting for their
+			// width need a layout pass, the others keep their layout position
+			// until the next scroll. Tabs leaving the window with a jump stay
+			// attached, so they can be animated out of the strip.
+			if (bindTabs(jump) | measureWindow()) this.requestLayout();
+		}
 		
-		// left outside, will not come to screen
-		for (int i = 0; i < pos - 2; i++) {
-			ViewPagerTab t = (ViewPagerTab) getChildAt(i);
+		calculateNewPositions(false, jump);
+		
+		// tabs which left the window go to their resting position, while
+		// jumping they are animated there
+		if (!jump) {
+			for (int i = oldPosition - WINDOW_RADIUS; i <= oldPosition + WINDOW_RADIUS; i++) {
+				if (Math.abs(i - position) <= WINDOW_RADIUS) continue;
+				
+				final ViewPagerTab tab = getTab(i);
+				if (tab != null) moveTab(tab);
+			}
+		}
+		
+		mJumping = jump;
+		mAnimating = jump;
+		
+		if (jump) {
+			mScrollPending = false;
+			mAnimationStart = AnimationUtils.currentAnimationTimeMillis();
+			invalidate();
+		}
+		
+		if (mTitleLoader != null) mTitleLoader.request(position, mScrollDirection);
+		
+		requestIcons();
+	}
+	
+	
+	/*
+	 * Drawing
+	 */
+	
+	/**
+	 * Draws the tabs of the window and the ones leaving it in canvas mode, in
+	 * the same order as {@link ViewPagerTab} does: line, pressed background,
+	 * label
+	 */
+	@Override
+	protected void onDraw(Canvas canvas) {
+		
+		if (mRenderMode != RENDER_MODE_CANVAS) return;
+		
+		for (int k = 0; k < mCanvasCount; k++) {
+			drawCanvasTab(canvas, mCanvasFirst + k, mCanvasTitles[k]);
+		}
+		
+		final TabPositionEngine engine = mEngine;
+		
+		for (int n = engine.getLeavingCount() - 1; n >= 0; n--) {
+			final int position = engine.getLeavingPosition(n);
+			final int k = position - mCanvasLeavingFirst;
 			
-			t.currentPos = leftOutside(t);
-			t.prevPos = t.currentPos;
-			t.nextPos = t.currentPos;
+			if (k >= 0 && k < WINDOW_SIZE && mCanvasLeavingTitles[k] != null) {
+				drawCanvasTab(canvas, position, mCanvasLeavingTitles[k]);
+			}
+		}
+	}
+	
+	/**
+	 * Draws a tab at its layout position, if it is on screen
+	 */
+	private void drawCanvasTab(Canvas canvas, int position, String title) {
+		
+		final TabPositionEngine engine = mEngine;
+		
+		final int left = engine.getLayoutPos(position);
+		final int right = left + engine.getTabWidth(position);
+		
+		if (right <= 0 || left >= getWidth()) return;
+		
+		final TabMetricsListener metrics = mMetrics;
+		final long start = metrics != null ? System.nanoTime() : 0;
+		
+		final TabStyle style = getStyle();
+		final TabLabelCache labelCache = mLabelCache;
+		
+		final int top = this.getPaddingTop();
+		final int bottom = top + mTabHeight;
+		
+		final int percent = getCenterPercent(left, right - left);
+		
+		final TextPaint textPaint = style.getTextPaint(percent);
+		
+		canvas.drawRect(left, bottom - mLineHeight, right, bottom, style.getLinePaint(percent));
+		
+		if (position == mPressedPosition || (this.isFocused() && position == mPosition)) {
+			canvas.drawRect(left, top, right, bottom, style.getSelectedPaint());
+		}
+		
+		final Bitmap label = labelCache != null ? labelCache.get(title, textPaint) : null;
+		
+		if (label != null) {
+			canvas.drawBitmap(label, left + mTabPaddingLeft, top + mTabPaddingTop, textPaint);
+		} else {
+			final int baseline = top + mTabPaddingTop - style.getFontMetrics().top;
+			canvas.drawText(title, left + mTabPaddingLeft, baseline, textPaint);
+		}
+		
+		if (metrics != null) metrics.onEvent(TabMetricsListener.EVENT_DRAW_TAB, System.nanoTime() - start);
+	}
+	
+	/**
+	 * Advances the jump animation, this runs once per frame before the tabs
+	 * are drawn. The leaving tabs are released once they reached their
+	 * resting position.
+	 */
+	private void stepAnimation() {
+		
+		final long elapsed = AnimationUtils.currentAnimationTimeMillis() - mAnimationStart;
+		final float t = Math.min(1.0f, elapsed / (float) JUMP_DURATION);
+		
+		mEngine.animate(mInterpolator.getInterpolation(t));
+		moveTabs();
+		
+		// schedules the next frame, in canvas mode this frame is drawn with
+		// the new positions, too
+		if (t < 1.0f || mRenderMode == RENDER_MODE_CANVAS) invalidate();
+		
+		if (t >= 1.0f) {
+			mAnimating = false;
+			releaseLeavingTabs();
+		}
+	}
+	
+	/**
+	 * Touches are never dispatched to the tabs, the strip finds the touched
+	 * tab itself (see onTouchEvent(MotionEvent))
+	 */
+	@Override
+	public boolean onInterceptTouchEvent(MotionEvent event) {
+		return mPager != null;
+	}
+	
+	/**
+	 * Hit-tests the tabs, a tap on a tab selects its page
+	 */
+	@Override
+	public boolean onTouchEvent(MotionEvent event) {
+		
+		if (mPager == null) return super.onTouchEvent(event);
+		
+		final int action = event.getAction() & MotionEvent.ACTION_MASK;
+		
+		if (action == MotionEvent.ACTION_DOWN) updateHitIndex();
+		
+		final int position = mHitIndex.find((int) event.getX());
+		
+		switch (action) {
+			case MotionEvent.ACTION_DOWN:
+				setPressedPosition(position);
+				return position >= 0;
+			case MotionEvent.ACTION_MOVE:
+				if (position != mPressedPosition) setPressedPosition(-1);
+				break;
+			case MotionEvent.ACTION_UP:
+				if (position >= 0 && position == mPressedPosition) performTabClick(position);
+				setPressedPosition(-1);
+				break;
+			case MotionEvent.ACTION_CANCEL:
+				setPressedPosition(-1);
+				break;
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Collects the bounds of the tabs which are on screen, only the tabs in
+	 * the window and the ones moving out of it can be
+	 */
+	private void updateHitIndex() {
+		
+		final TabPositionEngine engine = mEngine;
+		final TabHitIndex index = mHitIndex;
+		final int width = getWidth();
+		
+		index.clear();
+		
+		final int first = Math.max(0, mPosition - WINDOW_RADIUS);
+		final int last = Math.min(mTabCount - 1, mPosition + WINDOW_RADIUS);
+		
+		for (int i = first; i <= last; i++) {
+			final int left = engine.getLayoutPos(i);
+			index.add(i, left, left + engine.getTabWidth(i), width);
+		}
+		
+		for (int n = engine.getLeavingCount() - 1; n >= 0; n--) {
+			final int i = engine.getLeavingPosition(n);
+			final int left = engine.getLayoutPos(i);
+			index.add(i, left, left + engine.getTabWidth(i), width);
 		}
+	}
+	
+	private void setPressedPosition(int position) {
+		if (mPressedPosition == position) return;
 		
-		// left outside, may come to screen
-		if (pos > 1) {
-			ViewPagerTab t = (ViewPagerTab) getChildAt(pos - 2);
+		if (mRenderMode == RENDER_MODE_VIEWS) {
+			final ViewPagerTab old = getTab(mPressedPosition);
+			if (old != null) old.setPressed(false);
 			
-			t.currentPos = leftOutside(t);
-			t.prevPos = t.currentPos;
-			t.nextPos = left(t);
+			final ViewPagerTab tab = getTab(position);
+			if (tab != null) tab.setPressed(true);
+		}
+		
+		mPressedPosition = position;
+		invalidate();
+	}
+	
+	void performTabClick(int position) {
+		
+		final ViewPagerTab tab = mRenderMode == RENDER_MODE_VIEWS ? getTab(position) : null;
+		
+		if (tab != null) {
+			tab.performClick();
+		} else {
+			playSoundEffect(SoundEffectConstants.CLICK);
+			mPager.setCurrentItem(position);
 		}
+	}
+	
+	/**
+	 * Moves the focus between the tabs which are on screen without searching
+	 * all children, most of them are parked outside of the strip
+	 */
+	@Override
+	public View focusSearch(View focused, int direction) {
 		
-		// left
-		if (pos > 0) {
-			ViewPagerTab t = (ViewPagerTab) getChildAt(pos - 1);
+		if ((direction == FOCUS_LEFT || direction == FOCUS_RIGHT) && focused instanceof ViewPagerTab
+		    && focused.getParent() == this) {
+			
+			updateHitIndex();
+			
+			final int position = mHitIndex.findNeighbour(((ViewPagerTab) focused).getIndex(), direction == FOCUS_RIGHT);
+			final ViewPagerTab tab = getTab(position);
 			
-			t.currentPos = left(t);
-			t.prevPos = leftOutside(t);
-			t.nextPos = center(t);
+			if (tab != null) return tab;
 		}
 		
-		// center
-		if (count > 0) {
-			ViewPagerTab t = (ViewPagerTab) getChildAt(pos);
-			
-			t.currentPos = center(t);
-			t.prevPos = left(t);
-			t.nextPos = right(t);
-		}
+		return super.focusSearch(focused, direction);
+	}
+	
+	/**
+	 * In canvas mode the strip itself is focusable, the pages are switched
+	 * with the d-pad
+	 */
+	@Override
+	public boolean onKeyDown(int keyCode, KeyEvent event) {
 		
-		// right
-		if (pos < count - 1) {
-			ViewPagerTab t = (ViewPagerTab) getChildAt(pos + 1);
-			
-			t.currentPos = right(t);
-			t.prevPos = center(t);
-			t.nextPos = rightOutside(t);
+		if (mRenderMode == RENDER_MODE_CANVAS && mPager != null) {
+			switch (keyCode) {
+				case KeyEvent.KEYCODE_DPAD_LEFT:
+					if (mPosition > 0) {
+						mPager.setCurrentItem(mPosition - 1);
+						return true;
+					}
+					break;
+				case KeyEvent.KEYCODE_DPAD_RIGHT:
+					if (mPosition < mTabCount - 1) {
+						mPager.setCurrentItem(mPosition + 1);
+						return true;
+					}
+					break;
+			}
 		}
 		
-		// right outside, may come to screen
-		if (pos < count - 2) {
-			ViewPagerTab t = (ViewPagerTab) getChildAt(pos + 2);
-			
-			t.currentPos = rightOutside(t);
-			t.prevPos = right(t);
-			t.nextPos = t.currentPos;
-		}
+		return super.onKeyDown(keyCode, event);
+	}
+	
+	/**
+	 * The tabs drawn in canvas mode are no views. Since Jelly Bean they are
+	 * virtual views of a {@link TabAccessibilityProvider}, which accessibility
+	 * services can focus and click one by one.
+	 */
+	@Override
+	public AccessibilityNodeProvider getAccessibilityNodeProvider() {
 		
-		// right outside, will not come to screen
-		for (int i = pos + 3; i < count; i++) {
-			ViewPagerTab t = (ViewPagerTab) getChildAt(i);
-			
-			t.currentPos = rightOutside(t);
-			t.prevPos = t.currentPos;
-			t.nextPos = t.currentPos;
-		}
+		if (mRenderMode != RENDER_MODE_CANVAS) return super.getAccessibilityNodeProvider();
 		
+		if (mAccessibilityProvider == null) mAccessibilityProvider = new TabAccessibilityProvider(this);
 		
-		// Prevent tabs from overlapping
-		// TODO: make this better?
-		{
-			ViewPagerTab leftOutside = pos > 1 ? (ViewPagerTab) getChildAt(pos - 2) : null;
-			ViewPagerTab left = pos > 0 ? (ViewPagerTab) getChildAt(pos - 1) : null;
-			ViewPagerTab center = (ViewPagerTab) getChildAt(pos);
-			ViewPagerTab right = pos < getChildCount() - 1 ? (ViewPagerTab) getChildAt(pos + 1) : null;
-			ViewPagerTab rightOutside = pos < getChildCount() - 2 ? (ViewPagerTab) getChildAt(pos + 2) : null;
-			
-			if (leftOutside != null) {
-				if (leftOutside.nextPos + leftOutside.getMeasuredWidth() >= left.nextPos) {
-					leftOutside.nextPos = left.nextPos - leftOutside.getMeasuredWidth();
-				}
-			}
-			
-			if (left != null) {
-				if (left.currentPos + left.getMeasuredWidth() >= center.currentPos) {
-					left.currentPos = center.currentPos - left.getMeasuredWidth();
-				}
-				if (center.nextPos <= left.nextPos + left.getMeasuredWidth()) {
-					center.nextPos = left.nextPos + left.getMeasuredWidth();
-				}
-			}
-			
-			if (right != null) {
-				if (center.prevPos + center.getMeasuredWidth() >= right.prevPos) {
-					center.prevPos = right.prevPos - center.getMeasuredWidth();
-				}
-				if (right.currentPos <= center.currentPos + center.getMeasuredWidth()) {
-					right.currentPos = center.currentPos + center.getMeasuredWidth();
-				}
-			}
-			
-			if (rightOutside != null) {
-				if (rightOutside.prevPos <= right.prevPos + right.getMeasuredWidth()) {
-					rightOutside.prevPos = right.prevPos + right.getMeasuredWidth();
-				}
-			}
+		return mAccessibilityProvider;
+	}
+	
+	/**
+	 * Explores the virtual views of the tabs by touch
+	 */
+	@Override
+	public boolean dispatchHoverEvent(MotionEvent event) {
+		
+		if (mRenderMode == RENDER_MODE_CANVAS && mAccessibilityProvider != null
+		    && mAccessibilityProvider.dispatchHoverEvent(event)) {
+			return true;
 		}
 		
+		return super.dispatchHoverEvent(event);
+	}
+	
+	/**
+	 * Before Jelly Bean there are no virtual views, then the strip reports the
+	 * current tab to accessibility services in canvas mode
+	 */
+	@Override
+	public boolean dispatchPopulateAccessibilityEvent(AccessibilityEvent event) {
 		
-		// Set initial positions for each tab
-		if (firstTime) {
-			for (int i = 0; i < count; i++) {
-				ViewPagerTab t = (ViewPagerTab) getChildAt(i);
-				t.layoutPos = t.currentPos;
-			}
+		if (mRenderMode != RENDER_MODE_CANVAS || mAccessibilityProvider != null) {
+			return super.dispatchPopulateAccessibilityEvent(event);
 		}
 		
+		final int k = mPosition - mCanvasFirst;
+		if (k >= 0 && k < mCanvasCount) event.getText().add(mCanvasTitles[k]);
+		
+		event.setItemCount(mTabCount);
+		event.setCurrentItemIndex(mPosition);
 		
+		return true;
 	}
 	
 	
-	private int leftOutside(ViewPagerTab tab) {
-		final int width = tab.getMeasuredWidth();
-		return width * (-1) - mOutsideOffset;
-	}
+	/*
+	 * Virtual views of the tabs in canvas mode, see TabAccessibilityProvider
+	 */
 	
-	private int left(ViewPagerTab tab) {
-		return 0 - tab.getPaddingLeft();
+	int getTabCount() {
+		return mTabCount;
 	}
 	
-	private int center(ViewPagerTab tab) {
-		final int width = tab.getMeasuredWidth();
-		return this.getMeasuredWidth() / 2 - width / 2;
+	boolean isTabPosition(int position) {
+		return position >= 0 && position < mTabCount;
 	}
 	
-	private int right(ViewPagerTab tab) {
-		final int width = tab.getMeasuredWidth();
-		return this.getMeasuredWidth() - width + tab.getPaddingRight();
+	int getWindowFirst() {
+		return mCanvasFirst;
 	}
 	
-	private int rightOutside(ViewPagerTab tab) {
-		return this.getMeasuredWidth() + mOutsideOffset;
+	int getWindowLast() {
+		return mCanvasFirst + mCanvasCount - 1;
 	}
 	
+	CharSequence getTabTitle(int position) {
+		final int k = position - mCanvasFirst;
+		return k >= 0 && k < mCanvasCount ? mCanvasTitles[k] : getTitle(position);
+	}
 	
+	/**
+	 * Puts the bounds of a tab at its layout position into the rect
+	 * 
+	 * @return true if the tab is on screen
+	 */
+	boolean getTabBounds(int position, Rect rect) {
+		final int left = mEngine.getLayoutPos(position);
+		
+		rect.set(left, this.getPaddingTop(), left + mEngine.getTabWidth(position), this.getPaddingTop() + mTabHeight);
+		
+		return rect.right > 0 && rect.left < getWidth();
+	}
 	
-	@Override
-	public void onPageScrollStateChanged(int state) {
+	/**
+	 * Returns the position of the tab on screen at x, or -1 if there is none
+	 */
+	int findTab(float x) {
+		updateHitIndex();
+		return mHitIndex.find((int) x);
 	}
 	
+	
+	/*
+	 * Performance metrics
+	 */
+	
 	/**
-	 * At this point the scrolling direction is determined and every child is
-	 * interpolated to its previous or next position
+	 * Installs a listener which receives timings and per-frame work counters
+	 * 
+	 * @param listener
+	 *          The listener, or null to stop collecting metrics
 	 */
+	public void setMetricsListener(TabMetricsListener listener) {
+		mMetrics = listener;
+		mRequestLayoutCount = 0;
+		mMeasureCount = 0;
+		mTabsTouched = 0;
+	}
+	
+	public TabMetricsListener getMetricsListener() {
+		return mMetrics;
+	}
+	
 	@Override
-	public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
-		
-		final int count = getChildCount();
-		
-		final int currentScrollX = mPosition * (mPager.getWidth() + mPager.getPageMargin());
-		
-		Direction dir = Direction.Center;
+	public void requestLayout() {
+		if (mMetrics != null) mRequestLayoutCount++;
+		super.requestLayout();
+	}
+	
+	@Override
+	protected void dispatchDraw(Canvas canvas) {
+		super.dispatchDraw(canvas);
 		
-		float x = 0.0f;
+		if (mFadingEdgeMode == FADING_EDGE_GRADIENT) drawFadingEdges(canvas);
 		
-		if (mPager.getScrollX() < currentScrollX) {
-			dir = Direction.Left;
-			x = 1 - positionOffset;
-		} else if (mPager.getScrollX() > currentScrollX) {
-			dir = Direction.Right;
-			x = positionOffset;
-		}
+		final TabMetricsListener metrics = mMetrics;
 		
-		for (int i = 0; i < count; i++) {
-			ViewPagerTab tab = (ViewPagerTab) getChildAt(i);
-			
-			final float y0 = tab.currentPos;
-			float y1 = 0.0f;
-			
-			if (dir == Direction.Left)
-				y1 = tab.nextPos;
-			else if (dir == Direction.Right)
-				y1 = tab.prevPos;
-			else
-				y1 = tab.currentPos;
-			
-			tab.layoutPos = (int) (y0 + (y1 * x - y0 * x));
+		if (metrics != null) {
+			metrics.onFrame(mRequestLayoutCount, mMeasureCount, mTabsTouched);
+			mRequestLayoutCount = 0;
+			mMeasureCount = 0;
+			mTabsTouched = 0;
 		}
-		
-		this.requestLayout();
 	}
 	
+	/**
+	 * Tabs resting outside of the strip aren't drawn, if all tabs are kept as
+	 * children that is most of them
+	 */
 	@Override
-	public void onPageSelected(int position) {
-		mPosition = position;
-		calculateNewPositions(false);
-		this.requestLayout();
+	protected boolean drawChild(Canvas canvas, View child, long drawingTime) {
+		if (isOutsideStrip(child.getLeft(), child.getWidth())) return false;
+		
+		final TabMetricsListener metrics = mMetrics;
+		
+		if (metrics == null) return super.drawChild(canvas, child, drawingTime);
+		
+		final long start = System.nanoTime();
+		final boolean more = super.drawChild(canvas, child, drawingTime);
+		metrics.onEvent(TabMetricsListener.EVENT_DRAW_TAB, System.nanoTime() - start);
+		return more;
 	}
 	
 	
@@ -498,112 +2360,424 @@ public class ViewPagerTabs extends ViewGroup implements OnPageChangeListener {
 	 */
 	
 	public void setTabPaddingLeft(int padding) {
-		this.mTabPaddingLeft = padding;
-		applyStyles();
+		editStyle().setTabPaddingLeft(padding).apply();
 	}
 	
 	public void setTabPaddingTop(int padding) {
-		this.mTabPaddingTop = padding;
-		applyStyles();
+		editStyle().setTabPaddingTop(padding).apply();
 	}
 	
 	public void setTabPaddingRight(int padding) {
-		this.mTabPaddingRight = padding;
-		applyStyles();
+		editStyle().setTabPaddingRight(padding).apply();
 	}
 	
 	public void setTabPaddingBottom(int padding) {
-		this.mTabPaddingBottom = padding;
-		applyStyles();
+		editStyle().setTabPaddingBottom(padding).apply();
 	}
 	
 	public void setTabPadding(int left, int top, int right, int bottom) {
-		this.mTabPaddingLeft = left;
-		this.mTabPaddingTop = top;
-		this.mTabPaddingRight = right;
-		this.mTabPaddingBottom = bottom;
-		applyStyles();
+		editStyle().setTabPadding(left, top, right, bottom).apply();
 	}
 	
 	public void setBackgroundColorPressed(int color) {
-		this.mBackgroundColorPressed = color;
-		applyStyles();
+		editStyle().setBackgroundColorPressed(color).apply();
 	}
 	
 	public void setTextSize(float size) {
-		this.mTextSize = size;
-		applyStyles();
+		editStyle().setTextSize(size).apply();
 	}
 	
 	public void setTextColor(int color) {
-		this.mTextColor = color;
-		applyStyles();
+		editStyle().setTextColor(color).apply();
 	}
 	
 	public void setTextColorCenter(int color) {
-		this.mTextColorCenter = color;
-		applyStyles();
+		editStyle().setTextColorCenter(color).apply();
 	}
 	
 	public void setLineColorCenter(int color) {
-		this.mLineColorCenter = color;
-		applyStyles();
+		editStyle().setLineColorCenter(color).apply();
 	}
 	
 	public void setLineHeight(int height) {
-		this.mLineHeight = height;
-		applyStyles();
+		editStyle().setLineHeight(height).apply();
 	}
 	
 	public void setOutsideOffset(int offset) {
-		this.mOutsideOffset = offset;
-		applyStyles();
+		editStyle().setOutsideOffset(offset).apply();
+	}
+	
+	/**
+	 * @param size
+	 *          Height of the icons in pixels
+	 */
+	public void setIconSize(int size) {
+		editStyle().setIconSize(size).apply();
+	}
+	
+	/**
+	 * @param padding
+	 *          Space between icon and title in pixels
+	 */
+	public void setIconPadding(int padding) {
+		editStyle().setIconPadding(padding).apply();
 	}
 	
 	
 	/**
+	 * Starts changing several styles at once. The tabs are updated only once,
+	 * when {@link StyleEditor#apply()} is called:
 	 * 
+	 * <pre>
+	 * tabs.editStyle().setTextColor(0xFF999999).setTextSize(14).setLineHeight(3).apply();
+	 * </pre>
+	 */
+	public StyleEditor editStyle() {
+		return mStyleEditor;
+	}
+	
+	// Kinds of style changes, passed to applyStyles(int)
+	private static final int STYLE_COLORS = 1;
+	private static final int STYLE_METRICS = 2;
+	private static final int STYLE_OFFSET = 4;
+	
+	// Values staged in the StyleEditor
+	private static final int SET_TAB_PADDING_LEFT = 1 << 0;
+	private static final int SET_TAB_PADDING_TOP = 1 << 1;
+	private static final int SET_TAB_PADDING_RIGHT = 1 << 2;
+	private static final int SET_TAB_PADDING_BOTTOM = 1 << 3;
+	private static final int SET_TEXT_SIZE = 1 << 4;
+	private static final int SET_LINE_HEIGHT = 1 << 5;
+	private static final int SET_BACKGROUND_COLOR_PRESSED = 1 << 6;
+	private static final int SET_TEXT_COLOR = 1 << 7;
+	private static final int SET_TEXT_COLOR_CENTER = 1 << 8;
+	private static final int SET_LINE_COLOR_CENTER = 1 << 9;
+	private static final int SET_ICON_SIZE = 1 << 10;
+	private static final int SET_ICON_PADDING = 1 << 11;
+	private static final int SET_OUTSIDE_OFFSET = 1 << 12;
+	
+	private final StyleEditor mStyleEditor = new StyleEditor();
+	
+	/**
+	 * Collects style changes. The values are staged in the editor and only
+	 * written to the strip by apply(). Values which don't change are ignored,
+	 * if only colors change the tabs are neither measured nor laid out again.
 	 */
-	private void applyStyles() {
+	public final class StyleEditor {
 		
-		final int count = getChildCount();
+		// The values which have been set since the last apply(), see mSet
+		private int mNewTabPaddingLeft;
+		private int mNewTabPaddingTop;
+		private int mNewTabPaddingRight;
+		private int mNewTabPaddingBottom;
+		private float mNewTextSize;
+		private int mNewLineHeight;
+		private int mNewBackgroundColorPressed;
+		private int mNewTextColor;
+		private int mNewTextColorCenter;
+		private int mNewLineColorCenter;
+		private int mNewIconSize;
+		private int mNewIconPadding;
+		private int mNewOutsideOffset;
 		
-		for (int i = 0; i < count; i++) {
+		// Combination of the SET_ flags of the staged values
+		private int mSet = 0;
+		
+		private StyleEditor() {
+		}
+		
+		public StyleEditor setTabPaddingLeft(int padding) {
+			mNewTabPaddingLeft = padding;
+			mSet |= SET_TAB_PADDING_LEFT;
+			return this;
+		}
+		
+		public StyleEditor setTabPaddingTop(int padding) {
+			mNewTabPaddingTop = padding;
+			mSet |= SET_TAB_PADDING_TOP;
+			return this;
+		}
+		
+		public StyleEditor setTabPaddingRight(int padding) {
+			mNewTabPaddingRight = padding;
+			mSet |= SET_TAB_PADDING_RIGHT;
+			return this;
+		}
+		
+		public StyleEditor setTabPaddingBottom(int padding) {
+			mNewTabPaddingBottom = padding;
+			mSet |= SET_TAB_PADDING_BOTTOM;
+			return this;
+		}
+		
+		public StyleEditor setTabPadding(int left, int top, int right, int bottom) {
+			return setTabPaddingLeft(left).setTabPaddingTop(top).setTabPaddingRight(right).setTabPaddingBottom(bottom);
+		}
+		
+		public StyleEditor setTextSize(float size) {
+			mNewTextSize = size;
+			mSet |= SET_TEXT_SIZE;
+			return this;
+		}
+		
+		public StyleEditor setLineHeight(int height) {
+			mNewLineHeight = height;
+			mSet |= SET_LINE_HEIGHT;
+			return this;
+		}
+		
+		public StyleEditor setBackgroundColorPressed(int color) {
+			mNewBackgroundColorPressed = color;
+			mSet |= SET_BACKGROUND_COLOR_PRESSED;
+			return this;
+		}
+		
+		public StyleEditor setTextColor(int color) {
+			mNewTextColor = color;
+			mSet |= SET_TEXT_COLOR;
+			return this;
+		}
+		
+		public StyleEditor setTextColorCenter(int color) {
+			mNewTextColorCenter = color;
+			mSet |= SET_TEXT_COLOR_CENTER;
+			return this;
+		}
+		
+		public StyleEditor setLineColorCenter(int color) {
+			mNewLineColorCenter = color;
+			mSet |= SET_LINE_COLOR_CENTER;
+			return this;
+		}
+		
+		public StyleEditor setIconSize(int size) {
+			mNewIconSize = size;
+			mSet |= SET_ICON_SIZE;
+			return this;
+		}
+		
+		public StyleEditor setIconPadding(int padding) {
+			mNewIconPadding = padding;
+			mSet |= SET_ICON_PADDING;
+			return this;
+		}
+		
+		public StyleEditor setOutsideOffset(int offset) {
+			mNewOutsideOffset = offset;
+			mSet |= SET_OUTSIDE_OFFSET;
+			return this;
+		}
+		
+		/**
+		 * Writes the values set since the last call to the strip and applies
+		 * all changes in one pass
+		 */
+		public void apply() {
+			final int set = mSet;
+			mSet = 0;
 			
-			ViewPagerTab tab = (ViewPagerTab) getChildAt(i);
+			int changes = 0;
 			
-			tab.setPadding(mTabPaddingLeft, mTabPaddingTop, mTabPaddingRight, mLineHeight + mTabPaddingBottom - 4);
-			tab.setTextColors(mTextColor, mTextColorCenter);
-			tab.setLineColors(mLineColor, mLineColorCenter);
-			tab.setLineHeight(mLineHeight);
-			tab.setBackgroundColorPressed(mBackgroundColorPressed);
-			tab.setTextSize(mTextSize);
+			if ((set & SET_TAB_PADDING_LEFT) != 0 && mTabPaddingLeft != mNewTabPaddingLeft) {
+				mTabPaddingLeft = mNewTabPaddingLeft;
+				changes |= STYLE_METRICS;
+			}
+			if ((set & SET_TAB_PADDING_TOP) != 0 && mTabPaddingTop != mNewTabPaddingTop) {
+				mTabPaddingTop = mNewTabPaddingTop;
+				changes |= STYLE_METRICS;
+			}
+			if ((set & SET_TAB_PADDING_RIGHT) != 0 && mTabPaddingRight != mNewTabPaddingRight) {
+				mTabPaddingRight = mNewTabPaddingRight;
+				changes |= STYLE_METRICS;
+			}
+			if ((set & SET_TAB_PADDING_BOTTOM) != 0 && mTabPaddingBottom != mNewTabPaddingBottom) {
+				mTabPaddingBottom = mNewTabPaddingBottom;
+				changes |= STYLE_METRICS;
+			}
+			if ((set & SET_TEXT_SIZE) != 0 && mTextSize != mNewTextSize) {
+				mTextSize = mNewTextSize;
+				changes |= STYLE_METRICS;
+			}
+			if ((set & SET_LINE_HEIGHT) != 0 && mLineHeight != mNewLineHeight) {
+				mLineHeight = mNewLineHeight;
+				changes |= STYLE_METRICS;
+			}
+			if ((set & SET_BACKGROUND_COLOR_PRESSED) != 0 && mBackgroundColorPressed != mNewBackgroundColorPressed) {
+				mBackgroundColorPressed = mNewBackgroundColorPressed;
+				changes |= STYLE_COLORS;
+			}
+			if ((set & SET_TEXT_COLOR) != 0 && mTextColor != mNewTextColor) {
+				mTextColor = mNewTextColor;
+				changes |= STYLE_COLORS;
+			}
+			if ((set & SET_TEXT_COLOR_CENTER) != 0 && mTextColorCenter != mNewTextColorCenter) {
+				mTextColorCenter = mNewTextColorCenter;
+				changes |= STYLE_COLORS;
+			}
+			if ((set & SET_LINE_COLOR_CENTER) != 0 && mLineColorCenter != mNewLineColorCenter) {
+				mLineColorCenter = mNewLineColorCenter;
+				changes |= STYLE_COLORS;
+			}
+			if ((set & SET_ICON_SIZE) != 0 && mIconSize != mNewIconSize) {
+				mIconSize = mNewIconSize;
+				changes |= STYLE_METRICS;
+			}
+			if ((set & SET_ICON_PADDING) != 0 && mIconPadding != mNewIconPadding) {
+				mIconPadding = mNewIconPadding;
+				changes |= STYLE_METRICS;
+			}
+			if ((set & SET_OUTSIDE_OFFSET) != 0 && mOutsideOffset != mNewOutsideOffset) {
+				mOutsideOffset = mNewOutsideOffset;
+				changes |= STYLE_OFFSET;
+			}
 			
+			applyStyles(changes);
 		}
-
-		measureChildren();
-		
-		calculateNewPositions(true);
-		this.requestLayout();
-		
 	}
 	
 	
 	/**
-	 * Call this method if the titles in the pager's adapter were changed
+	 * Applies the changed styles to the tabs
+	 * 
+	 * @param changes
+	 *          Combination of STYLE_COLORS, STYLE_METRICS and STYLE_OFFSET
 	 */
-	public void refreshTitles() {
+	private void applyStyles(int changes) {
+		
+		if (changes == 0) return;
+		
+		if ((changes & (STYLE_COLORS | STYLE_METRICS)) != 0) updateStyle();
+		
 		final int count = getChildCount();
 		
-		for (int i = 0; i < count; i++) {
-			ViewPagerTab tab = (ViewPagerTab) getChildAt(i);
-			tab.setText(((ViewPagerTabProvider) mPager.getAdapter()).getTitle(i));
+		if ((changes & STYLE_METRICS) != 0) {
+			
+			// the snapshot was measured with the old style
+			mSnapshotPositions = null;
+			mSnapshotWidths = null;
+			mSnapshotHashes = null;
+			
+			if (mIconLoader != null) mIconLoader.setSize(mIconSize);
+			
+			for (int i = 0; i < count; i++) {
+				applyStyle((ViewPagerTab) getChildAt(i));
+			}
+			
+			if (mRenderMode == RENDER_MODE_CANVAS) {
+				applyCanvasStyle();
+				mCanvasCount = 0;
+				bindCanvasTabs();
+			}
+			
+			measureChildren();
+			
+		} else if ((changes & STYLE_COLORS) != 0) {
+			
+			// colors don't affect the size, the tabs only need to be redrawn
+			for (int i = 0; i < count; i++) {
+				applyColors((ViewPagerTab) getChildAt(i));
+			}
+			
+			invalidate();
+			
 		}
 		
-		measureChildren();
+		if ((changes & (STYLE_METRICS | STYLE_OFFSET)) != 0) {
+			calculateNewPositions(true);
+			this.requestLayout();
+		}
 		
-		calculateNewPositions(true);
-		this.requestLayout();
+	}
+	
+	
+	private void applyStyle(ViewPagerTab tab) {
+		bindIcon(tab);
+		applyColors(tab);
+		tab.setLineHeight(mLineHeight);
+		tab.setTextSize(mTextSize);
+		tab.setLabelCache(mLabelCache);
+	}
+	
+	/**
+	 * The left padding makes room for the icon
+	 */
+	private void applyPadding(ViewPagerTab tab) {
+		tab.setPadding(mTabPaddingLeft + tab.getIconSpace(), mTabPaddingTop, mTabPaddingRight, mLineHeight
+		    + mTabPaddingBottom - 4);
+	}
+	
+	private void applyColors(ViewPagerTab tab) {
+		tab.setStyle(getStyle());
+	}
+	
+	/**
+	 * The equivalent of applyStyle(ViewPagerTab) for canvas mode
+	 */
+	private void applyCanvasStyle() {
+		final Paint.FontMetricsInt fm = getStyle().getFontMetrics();
+		mTabHeight = fm.bottom - fm.top + mTabPaddingTop + mLineHeight + mTabPaddingBottom - 4;
+	}
+	
+	
+	/**
+	 * Returns the style for the current colors and text size, the shared one
+	 * if the strip is attached
+	 */
+	private TabStyle getStyle() {
+		if (mStyle == null) {
+			if (mAttached) {
+				mStyle = TabStyle.acquire(createStyleKey());
+				mStyleAcquired = true;
+			} else {
+				mStyle = new TabStyle(createStyleKey());
+			}
+		}
+		return mStyle;
+	}
+	
+	/**
+	 * Switches to the shared style of the new colors and text size. The
+	 * tabs are updated by the caller.
+	 */
+	private void updateStyle() {
+		if (mStyle != null && mStyle.key.equals(createStyleKey())) return;
+		releaseStyle();
+	}
+	
+	private void releaseStyle() {
+		if (mStyle == null) return;
+		if (mStyleAcquired) mStyle.release();
+		mStyle = null;
+		mStyleAcquired = false;
+	}
+	
+	/**
+	 * The text size is in sp, like {@link TextView#setTextSize(float)}, the
+	 * key holds it in pixels
+	 */
+	private TabStyle.Key createStyleKey() {
+		final float textSize = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, mTextSize, getResources()
+		    .getDisplayMetrics());
+		return new TabStyle.Key(mTextColor, mTextColorCenter, mLineColor, mLineColorCenter, mBackgroundColorPressed,
+		    textSize);
+	}
+	
+	/**
+	 * Returns the number of styles shared by all strips of the process, strips
+	 * with the same colors and text size use the same paints
+	 */
+	public static int getSharedStyleCount() {
+		return TabStyle.getSharedCount();
+	}
+	
+	
+	/**
+	 * Call this method if the titles in the pager's adapter were changed. Like
+	 * {@link #refreshTitles(int, int)}, only tabs whose title changed are
+	 * measured again.
+	 */
+	public void refreshTitles() {
+		refreshTitles(0, mTabCount);
 	}
 	
 	
@@ -612,22 +2786,59 @@ public class ViewPagerTabs extends ViewGroup implements OnPageChangeListener {
 	 * state handling
 	 */
 	
+	/**
+	 * Only styles which differ from the current ones are applied. The widths of
+	 * the tabs are restored if they were measured with the same density, font
+	 * scale, text size and typeface the strip had before the state is
+	 * restored, so tabs outside the window don't have to be measured before
+	 * they come to screen.
+	 */
 	@Override
 	public void onRestoreInstanceState(Parcelable state) {
 		SavedState savedState = (SavedState) state;
 		super.onRestoreInstanceState(savedState.getSuperState());
+		
+		final boolean moved = mPosition != savedState.position;
 		mPosition = savedState.position;
-		mBackgroundColorPressed = savedState.backgroundColorPressed;
-		mTextColor = savedState.textColor;
-		mTextColorCenter = savedState.textColorCenter;
-		mLineColorCenter = savedState.lineColorCenter;
-		mLineHeight = savedState.lineHeight;
-		mTabPaddingLeft = savedState.tabPaddingLeft;
-		mTabPaddingTop = savedState.tabPaddingTop;
-		mTabPaddingRight = savedState.tabPaddingRight;
-		mTabPaddingBottom = savedState.tabPaddingBottom;
-		mTextSize = savedState.textSize;
-		applyStyles();
+		
+		// the restored text size replaces the current one
+		final float textSize = mTextSize;
+		final int typefaceStyle = getTypefaceStyle();
+		
+		editStyle()
+		    .setBackgroundColorPressed(savedState.backgroundColorPressed)
+		    .setTextColor(savedState.textColor)
+		    .setTextColorCenter(savedState.textColorCenter)
+		    .setLineColorCenter(savedState.lineColorCenter)
+		    .setLineHeight(savedState.lineHeight)
+		    .setTabPadding(savedState.tabPaddingLeft, savedState.tabPaddingTop, savedState.tabPaddingRight,
+		        savedState.tabPaddingBottom)
+		    .setTextSize(savedState.textSize)
+		    .apply();
+		
+		final Resources res = getResources();
+		
+		if (savedState.tabPositions != null && savedState.density == res.getDisplayMetrics().density
+		    && savedState.fontScale == res.getConfiguration().fontScale && savedState.textSize == textSize
+		    && savedState.typefaceStyle == typefaceStyle) {
+			mSnapshotPositions = savedState.tabPositions;
+			mSnapshotWidths = savedState.tabWidths;
+			mSnapshotHashes = savedState.titleHashes;
+		} else {
+			mSnapshotPositions = null;
+			mSnapshotWidths = null;
+			mSnapshotHashes = null;
+		}
+		
+		if (moved) {
+			if (mRenderMode == RENDER_MODE_CANVAS) {
+				bindCanvasTabs();
+			} else {
+				bindTabs();
+			}
+			calculateNewPositions(true);
+			this.requestLayout();
+		}
 	}
 	
 	@Override
@@ -645,9 +2856,73 @@ public class ViewPagerTabs extends ViewGroup implements OnPageChangeListener {
 		savedState.tabPaddingRight = mTabPaddingRight;
 		savedState.tabPaddingBottom = mTabPaddingBottom;
 		savedState.textSize = mTextSize;
+		savedState.density = getResources().getDisplayMetrics().density;
+		savedState.fontScale = getResources().getConfiguration().fontScale;
+		savedState.typefaceStyle = getTypefaceStyle();
+		saveTabWidths(savedState);
 		return savedState;
 	}
 	
+	/**
+	 * Puts the positions and widths of the bound tabs (the window in canvas
+	 * mode) and the hashes of their titles into the state. At most
+	 * MAX_SNAPSHOT_TABS tabs around the current position are saved, tabs
+	 * without a known width are left out. The width of a tab which hasn't been
+	 * measured yet is the one of the engine.
+	 */
+	private void saveTabWidths(SavedState savedState) {
+		
+		final boolean canvas = mRenderMode == RENDER_MODE_CANVAS;
+		
+		final int first = canvas ? mCanvasFirst : mFirstBound;
+		final int last = first + (canvas ? mCanvasCount : getBoundCount()) - 1;
+		
+		final int from = Math.max(first, Math.min(mPosition - MAX_SNAPSHOT_TABS / 2, last - MAX_SNAPSHOT_TABS + 1));
+		final int to = Math.min(last, from + MAX_SNAPSHOT_TABS - 1);
+		
+		if (to < from) return;
+		
+		final int[] positions = new int[to - from + 1];
+		final int[] widths = new int[positions.length];
+		final int[] hashes = new int[positions.length];
+		
+		int n = 0;
+		
+		for (int i = from; i <= to; i++) {
+			
+			final CharSequence title;
+			
+			if (canvas) {
+				title = mCanvasTitles[i - mCanvasFirst];
+			} else {
+				final ViewPagerTab tab = getTab(i);
+				if (tab.isWidthPending()) continue;
+				title = tab.getText();
+			}
+			
+			final int width = mEngine.getTabWidth(i);
+			if (width <= 0) continue;
+			
+			positions[n] = i;
+			widths[n] = width;
+			hashes[n] = title.hashCode();
+			n++;
+		}
+		
+		savedState.tabPositions = Arrays.copyOf(positions, n);
+		savedState.tabWidths = Arrays.copyOf(widths, n);
+		savedState.titleHashes = Arrays.copyOf(hashes, n);
+	}
+	
+	/**
+	 * Returns the style of the typeface the titles are drawn with
+	 */
+	private int getTypefaceStyle() {
+		final View c = getChildAt(0);
+		final Typeface typeface = c != null ? ((TextView) c).getTypeface() : getStyle().getTextPaint(0).getTypeface();
+		return typeface != null ? typeface.getStyle() : Typeface.NORMAL;
+	}
+	
 	
 	/**
 	 * This holds our state
@@ -667,6 +2942,17 @@ public class ViewPagerTabs extends ViewGroup implements OnPageChangeListener {
 		int tabPaddingBottom;
 		float textSize;
 		
+		// Configuration fingerprint of the widths, with the text size
+		float density;
+		float fontScale;
+		int typefaceStyle;
+		
+		// Positions, measured widths and title hashes of the saved tabs, may
+		// be null
+		int[] tabPositions;
+		int[] tabWidths;
+		int[] titleHashes;
+		
 		public SavedState(Parcelable superState) {
 			super(superState);
 		}
@@ -684,6 +2970,12 @@ public class ViewPagerTabs extends ViewGroup implements OnPageChangeListener {
 			tabPaddingRight = in.readInt();
 			tabPaddingBottom = in.readInt();
 			textSize = in.readFloat();
+			density = in.readFloat();
+			fontScale = in.readFloat();
+			typefaceStyle = in.readInt();
+			tabPositions = in.createIntArray();
+			tabWidths = in.createIntArray();
+			titleHashes = in.createIntArray();
 		}
 		
 		@Override
@@ -700,6 +2992,12 @@ public class ViewPagerTabs extends ViewGroup implements OnPageChangeListener {
 			dest.writeInt(tabPaddingRight);
 			dest.writeInt(tabPaddingBottom);
 			dest.writeFloat(textSize);
+			dest.writeFloat(density);
+			dest.writeFloat(fontScale);
+			dest.writeInt(typefaceStyle);
+			dest.writeIntArray(tabPositions);
+			dest.writeIntArray(tabWidths);
+			dest.writeIntArray(titleHashes);
 		}
 		
 		public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
@@ -0,0 +1,48 @@
+package com.astuetz.viewpagertabs;
+
+/**
+ * The resource ids aapt generates from res/values/attrs.xml, the tests
+ * compile the library without the Android build tools. The attributes are
+ * in the order of attrs.xml.
+ */
+public final class R {
+	public static final class attr {
+		public static final int backgroundColor = 0x7f010000;
+		public static final int backgroundColorPressed = 0x7f010001;
+		public static final int textColor = 0x7f010002;
+		public static final int textColorCenter = 0x7f010003;
+		public static final int lineColorCenter = 0x7f010004;
+		public static final int lineHeight = 0x7f010005;
+		public static final int tabPaddingLeft = 0x7f010006;
+		public static final int tabPaddingTop = 0x7f010007;
+		public static final int tabPaddingRight = 0x7f010008;
+		public static final int tabPaddingBottom = 0x7f010009;
+		public static final int textSize = 0x7f01000a;
+		public static final int outsideOffset = 0x7f01000b;
+		public static final int renderMode = 0x7f01000c;
+		public static final int fadingEdgeMode = 0x7f01000d;
+		public static final int fadingEdgeColor = 0x7f01000e;
+		public static final int iconSize = 0x7f01000f;
+		public static final int iconPadding = 0x7f010010;
+	}
+	public static final class styleable {
+		public static final int[] ViewPagerTabs = { 0x7f010000, 0x7f010001, 0x7f010002, 0x7f010003, 0x7f010004, 0x7f010005, 0x7f010006, 0x7f010007, 0x7f010008, 0x7f010009, 0x7f01000a, 0x7f01000b, 0x7f01000c, 0x7f01000d, 0x7f01000e, 0x7f01000f, 0x7f010010 };
+		public static final int ViewPagerTabs_backgroundColor = 0;
+		public static final int ViewPagerTabs_backgroundColorPressed = 1;
+		public static final int ViewPagerTabs_textColor = 2;
+		public static final int ViewPagerTabs_textColorCenter = 3;
+		public static final int ViewPagerTabs_lineColorCenter = 4;
+		public static final int ViewPagerTabs_lineHeight = 5;
+		public static final int ViewPagerTabs_tabPaddingLeft = 6;
+		public static final int ViewPagerTabs_tabPaddingTop = 7;
+		public static final int ViewPagerTabs_tabPaddingRight = 8;
+		public static final int ViewPagerTabs_tabPaddingBottom = 9;
+		public static final int ViewPagerTabs_textSize = 10;
+		public static final int ViewPagerTabs_outsideOffset = 11;
+		public static final int ViewPagerTabs_renderMode = 12;
+		public static final int ViewPagerTabs_fadingEdgeMode = 13;
+		public static final int ViewPagerTabs_fadingEdgeColor = 14;
+		public static final int ViewPagerTabs_iconSize = 15;
+		public static final int ViewPagerTabs_iconPadding = 16;
+	}
+}
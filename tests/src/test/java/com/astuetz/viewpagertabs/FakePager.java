@@ -0,0 +1,129 @@
+package com.astuetz.viewpagertabs;
+
+/**
+ * Replays the page change callbacks of a ViewPager to a {@link FakeStrip},
+ * one frame at a time. Like the pager, several scrolls may be reported per
+ * frame, and a page is selected when a swipe is released.
+ */
+final class FakePager {
+	
+	static final int SCROLL_STATE_IDLE = 0;
+	static final int SCROLL_STATE_DRAGGING = 1;
+	static final int SCROLL_STATE_SETTLING = 2;
+	
+	// Frames of a swipe over one page: dragged, then settling
+	static final int DRAG_FRAMES = 10;
+	static final int SETTLE_FRAMES = 6;
+	
+	// Scrolls reported per frame while dragging, the touch events of a frame
+	static final int SCROLLS_PER_FRAME = 3;
+	
+	/**
+	 * Notified after every frame of the strip
+	 */
+	interface FrameListener {
+		public void onFrame(FakePager pager, int tabsTouched);
+	}
+	
+	
+	private final FakeStrip mStrip;
+	private final FrameListener mListener;
+	
+	private int mCurrentItem = 0;
+	
+	private int mFrames = 0;
+	
+	
+	FakePager(FakeStrip strip, FrameListener listener) {
+		mStrip = strip;
+		mListener = listener;
+	}
+	
+	int getCurrentItem() {
+		return mCurrentItem;
+	}
+	
+	int getFrameCount() {
+		return mFrames;
+	}
+	
+	/**
+	 * Drags to the next or previous page, releases past the middle and
+	 * settles there
+	 */
+	void swipe(boolean right) {
+		
+		final int target = right ? mCurrentItem + 1 : mCurrentItem - 1;
+		
+		if (target < 0 || target >= mStrip.getTabCount()) return;
+		
+		mStrip.onPageScrollStateChanged(SCROLL_STATE_DRAGGING);
+		
+		// the scroll position moves from the current page to the target
+		final int from = mCurrentItem;
+		final int frames = DRAG_FRAMES + SETTLE_FRAMES;
+		
+		for (int f = 1; f <= frames; f++) {
+			
+			final int substeps = f <= DRAG_FRAMES ? SCROLLS_PER_FRAME : 1;
+			
+			for (int s = 1; s <= substeps; s++) {
+				final float x = (f - 1 + s / (float) substeps) / frames;
+				final float scroll = from + (target - from) * x;
+				
+				final int page = (int) Math.floor(scroll);
+				mStrip.onPageScrolled(page, scroll - page);
+			}
+			
+			// released
+			if (f == DRAG_FRAMES) {
+				mStrip.onPageScrollStateChanged(SCROLL_STATE_SETTLING);
+				mCurrentItem = target;
+				mStrip.onPageSelected(target);
+			}
+			
+			frame();
+		}
+		
+		mStrip.onPageScrollStateChanged(SCROLL_STATE_IDLE);
+		frame();
+	}
+	
+	/**
+	 * Like setCurrentItem(int) after a tab has been tapped, the pager scrolls
+	 * over the pages in between
+	 */
+	void jumpTo(int target) {
+		
+		if (target == mCurrentItem) return;
+		
+		final int from = mCurrentItem;
+		
+		mCurrentItem = target;
+		mStrip.onPageScrollStateChanged(SCROLL_STATE_SETTLING);
+		mStrip.onPageSelected(target);
+		
+		final int frames = FakeStrip.JUMP_FRAMES + 2;
+		
+		for (int f = 1; f <= frames; f++) {
+			final float scroll = from + (target - from) * (f / (float) frames);
+			final int page = (int) Math.floor(scroll);
+			mStrip.onPageScrolled(page, scroll - page);
+			frame();
+		}
+		
+		mStrip.onPageScrollStateChanged(SCROLL_STATE_IDLE);
+		
+		// the animation of the strip may still run
+		while (mStrip.isAnimating()) {
+			frame();
+		}
+	}
+	
+	private void frame() {
+		final int touched = mStrip.frame();
+		mFrames++;
+		if (mListener != null) mListener.onFrame(this, touched);
+	}
+	
+}
@@ -0,0 +1,174 @@
+package com.astuetz.viewpagertabs;
+
+/**
+ * Does the per-frame work of {@link ViewPagerTabs} on a
+ * {@link TabPositionEngine}, without Android. The left edges of the tab
+ * views are kept in an array, a tab is touched whenever it is moved.
+ * 
+ * Like the strip, scrolls are only recorded and the latest one is applied
+ * when the next frame is drawn, and far jumps are animated over
+ * JUMP_FRAMES frames.
+ */
+final class FakeStrip {
+	
+	static final int WINDOW_RADIUS = TabPositionEngine.WINDOW_RADIUS;
+	
+	static final int STRIP_WIDTH = 480;
+	static final int TAB_PADDING = 10;
+	
+	// The jump animation of the strip takes 250 ms, at 60 frames per second
+	static final int JUMP_FRAMES = 16;
+	
+	
+	private final TabPositionEngine mEngine = new TabPositionEngine();
+	
+	private final int mTabCount;
+	
+	// Left edge of every tab view, like View.getLeft()
+	private final int[] mLefts;
+	
+	private int mPosition = 0;
+	
+	private boolean mScrollPending = false;
+	private float mPendingScroll = 0;
+	
+	private boolean mJumping = false;
+	private boolean mAnimating = false;
+	private int mAnimationFrame = 0;
+	
+	// Tabs moved since the last frame
+	private int mTabsTouched = 0;
+	
+	
+	FakeStrip(int tabCount) {
+		mTabCount = tabCount;
+		mLefts = new int[tabCount];
+		
+		mEngine.setTabCount(tabCount);
+		
+		// titles of different lengths
+		for (int i = 0; i < tabCount; i++) {
+			mEngine.setTabWidth(i, 60 + (i * 37) % 140);
+		}
+		
+		mEngine.setStripWidth(STRIP_WIDTH);
+		mEngine.setOutsideOffset(STRIP_WIDTH);
+		mEngine.setTabPadding(TAB_PADDING, TAB_PADDING);
+		
+		mEngine.calculate(0, true);
+		
+		// the first layout pass places every tab
+		for (int i = 0; i < tabCount; i++) {
+			mLefts[i] = mEngine.getLayoutPos(i);
+		}
+	}
+	
+	int getTabCount() {
+		return mTabCount;
+	}
+	
+	int getPosition() {
+		return mPosition;
+	}
+	
+	int getLeft(int position) {
+		return mLefts[position];
+	}
+	
+	TabPositionEngine getEngine() {
+		return mEngine;
+	}
+	
+	boolean isAnimating() {
+		return mAnimating;
+	}
+	
+	
+	void onPageScrollStateChanged(int state) {
+		if (state != FakePager.SCROLL_STATE_SETTLING) mJumping = false;
+	}
+	
+	void onPageScrolled(int position, float positionOffset) {
+		if (mJumping) return;
+		
+		mPendingScroll = position + positionOffset;
+		mScrollPending = true;
+	}
+	
+	void onPageSelected(int position) {
+		
+		final boolean jump = Math.abs(position - mPosition) > 1;
+		
+		final int oldPosition = mPosition;
+		
+		mPosition = position;
+		
+		if (jump) {
+			mEngine.calculateAnimated(position);
+		} else {
+			mEngine.calculate(position, false);
+			
+			for (int i = oldPosition - WINDOW_RADIUS; i <= oldPosition + WINDOW_RADIUS; i++) {
+				if (Math.abs(i - position) > WINDOW_RADIUS && i >= 0 && i < mTabCount) moveTab(i);
+			}
+		}
+		
+		mJumping = jump;
+		mAnimating = jump;
+		
+		if (jump) {
+			mScrollPending = false;
+			mAnimationFrame = 0;
+		}
+	}
+	
+	/**
+	 * Does the work of the pre-draw listener of the strip
+	 * 
+	 * @return The number of tabs touched since the last frame
+	 */
+	int frame() {
+		
+		if (mScrollPending) {
+			mScrollPending = false;
+			mEngine.layout(mPendingScroll);
+			moveTabs();
+		}
+		
+		if (mAnimating) {
+			mAnimationFrame++;
+			
+			final float t = Math.min(1.0f, mAnimationFrame / (float) JUMP_FRAMES);
+			
+			mEngine.animate(t);
+			moveTabs();
+			
+			if (t >= 1.0f) mAnimating = false;
+		}
+		
+		final int touched = mTabsTouched;
+		mTabsTouched = 0;
+		return touched;
+	}
+	
+	private void moveTabs() {
+		
+		for (int i = mPosition - WINDOW_RADIUS; i <= mPosition + WINDOW_RADIUS; i++) {
+			if (i >= 0 && i < mTabCount) moveTab(i);
+		}
+		
+		for (int n = mEngine.getLeavingCount() - 1; n >= 0; n--) {
+			moveTab(mEngine.getLeavingPosition(n));
+		}
+	}
+	
+	private void moveTab(int position) {
+		final int left = mEngine.getLayoutPos(position);
+		
+		if (mLefts[position] == left) return;
+		
+		mLefts[position] = left;
+		mTabsTouched++;
+	}
+	
+}
@@ -0,0 +1,104 @@
+package com.astuetz.viewpagertabs;
+
+import android.content.Context;
+import android.support.v4.view.PagerAdapter;
+import android.support.v4.view.ViewPager;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+/**
+ * A ViewPager whose page change callbacks are scripted by the test. The
+ * listener set by the strip is kept here, the pager itself never calls it.
+ */
+final class FakeViewPager extends ViewPager {
+	
+	private OnPageChangeListener mListener;
+	
+	
+	FakeViewPager(Context context, int pages) {
+		super(context);
+		setAdapter(new Adapter(pages));
+	}
+	
+	@Override
+	public void setOnPageChangeListener(OnPageChangeListener listener) {
+		mListener = listener;
+	}
+	
+	void onPageScrollStateChanged(int state) {
+		mListener.onPageScrollStateChanged(state);
+	}
+	
+	void onPageScrolled(int position, float positionOffset) {
+		mListener.onPageScrolled(position, positionOffset, (int) (positionOffset * getWidth()));
+	}
+	
+	/**
+	 * Moves the pager to the page without a callback, then reports the page as
+	 * selected
+	 */
+	void onPageSelected(int position) {
+		setCurrentItem(position, false);
+		mListener.onPageSelected(position);
+	}
+	
+	
+	/**
+	 * Pages with titles of different lengths, like "Section 6" and "Page 7"
+	 */
+	static final class Adapter extends PagerAdapter implements ViewPagerTabProvider {
+		
+		private final int mPages;
+		
+		Adapter(int pages) {
+			mPages = pages;
+		}
+		
+		@Override
+		public String getTitle(int position) {
+			return (position % 3 == 0 ? "Section " : "Page ") + position;
+		}
+		
+		@Override
+		public int getCount() {
+			return mPages;
+		}
+		
+		@Override
+		public Object instantiateItem(View container, int position) {
+			final TextView page = new TextView(container.getContext());
+			page.setText(getTitle(position));
+			((ViewGroup) container).addView(page);
+			return page;
+		}
+		
+		@Override
+		public void destroyItem(View container, int position, Object object) {
+			((ViewGroup) container).removeView((View) object);
+		}
+		
+		@Override
+		public boolean isViewFromObject(View view, Object object) {
+			return view == object;
+		}
+		
+		@Override
+		public void startUpdate(View container) {
+		}
+		
+		@Override
+		public void finishUpdate(View container) {
+		}
+		
+		@Override
+		public android.os.Parcelable saveState() {
+			return null;
+		}
+		
+		@Override
+		public void restoreState(android.os.Parcelable state, ClassLoader loader) {
+		}
+	}
+	
+}
@@ -0,0 +1,210 @@
+package com.astuetz.viewpagertabs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Replays scripted swipes and jumps at 10, 100 and 1,000 pages and checks
+ * the work of every frame against the budgets below. A frame over its budget
+ * fails the build.
+ */
+@RunWith(Parameterized.class)
+public class ScrollReplayTest {
+	
+	private static final int WINDOW_SIZE = FakeStrip.WINDOW_RADIUS * 2 + 1;
+	
+	// A swipe moves at most the tabs of the window, whatever the tab count
+	private static final int MAX_TABS_TOUCHED_PER_SWIPE_FRAME = WINDOW_SIZE;
+	
+	// A jump also moves the tabs leaving the old window
+	private static final int MAX_TABS_TOUCHED_PER_JUMP_FRAME = WINDOW_SIZE * 2;
+	
+	// Scrolling and animating the tabs must not allocate
+	private static final long MAX_ALLOCATED_BYTES = 0;
+	
+	// The allocations of the JVM itself (class loading, compilation, the
+	// counter) land on the thread at random, only the cleanest run counts
+	private static final int WARMUP_RUNS = 3;
+	private static final int MEASURED_RUNS = 5;
+	
+	
+	@Parameters(name = "{0} pages")
+	public static Collection<Object[]> pageCounts() {
+		return Arrays.asList(new Object[][] { { 10 }, { 100 }, { 1000 } });
+	}
+	
+	private final int mPages;
+	
+	
+	public ScrollReplayTest(int pages) {
+		mPages = pages;
+	}
+	
+	@Test
+	public void swipeStaysWithinBudget() {
+		final FrameBudget budget = new FrameBudget(MAX_TABS_TOUCHED_PER_SWIPE_FRAME);
+		final FakeStrip strip = new FakeStrip(mPages);
+		final FakePager pager = new FakePager(strip, budget);
+		
+		swipeThroughAllPages(pager);
+		
+		assertEquals(0, pager.getCurrentItem());
+		assertTrue(budget.getMaxTouched() > 0);
+	}
+	
+	@Test
+	public void jumpStaysWithinBudget() {
+		final FrameBudget budget = new FrameBudget(MAX_TABS_TOUCHED_PER_JUMP_FRAME);
+		final FakeStrip strip = new FakeStrip(mPages);
+		final FakePager pager = new FakePager(strip, budget);
+		
+		jumpAround(pager);
+		
+		assertTrue(budget.getMaxTouched() > 0);
+	}
+	
+	@Test
+	public void settledTabsAreAtTheirPositions() {
+		final FakeStrip strip = new FakeStrip(mPages);
+		final FakePager pager = new FakePager(strip, null);
+		
+		for (int i = 0; i < 3 && i < mPages - 1; i++) {
+			pager.swipe(true);
+			assertSettled(strip);
+		}
+		
+		pager.jumpTo(mPages - 1);
+		assertSettled(strip);
+		
+		pager.swipe(false);
+		assertSettled(strip);
+		
+		pager.jumpTo(0);
+		assertSettled(strip);
+	}
+	
+	@Test
+	public void replayDoesNotAllocate() {
+		
+		final com.sun.management.ThreadMXBean threads = getThreadMXBean();
+		Assume.assumeTrue(threads != null);
+		
+		final long thread = Thread.currentThread().getId();
+		
+		final FakeStrip strip = new FakeStrip(mPages);
+		final FakePager pager = new FakePager(strip, null);
+		
+		// the classes are loaded and the replay is compiled
+		for (int i = 0; i < WARMUP_RUNS; i++) {
+			swipeThroughAllPages(pager);
+			jumpAround(pager);
+		}
+		
+		// the first call allocates by itself
+		threads.getThreadAllocatedBytes(thread);
+		
+		long allocated = Long.MAX_VALUE;
+		
+		for (int i = 0; i < MEASURED_RUNS && allocated > MAX_ALLOCATED_BYTES; i++) {
+			final long start = threads.getThreadAllocatedBytes(thread);
+			
+			swipeThroughAllPages(pager);
+			jumpAround(pager);
+			
+			allocated = Math.min(allocated, threads.getThreadAllocatedBytes(thread) - start);
+		}
+		
+		assertTrue("allocated at least " + allocated + " bytes in every replay",
+		    allocated <= MAX_ALLOCATED_BYTES);
+	}
+	
+	
+	private void swipeThroughAllPages(FakePager pager) {
+		for (int i = 1; i < mPages; i++) {
+			pager.swipe(true);
+		}
+		for (int i = 1; i < mPages; i++) {
+			pager.swipe(false);
+		}
+	}
+	
+	private void jumpAround(FakePager pager) {
+		pager.jumpTo(mPages - 1);
+		pager.jumpTo(mPages / 2);
+		pager.jumpTo(Math.min(mPages - 1, mPages / 2 + 3));
+		pager.jumpTo(0);
+	}
+	
+	/**
+	 * The tabs of the window have to be where getPos(int, float) puts them,
+	 * every other tab has to be outside of the strip. Tabs which are passed
+	 * by a jump keep resting on their side.
+	 */
+	private static void assertSettled(FakeStrip strip) {
+		final TabPositionEngine engine = strip.getEngine();
+		final int position = strip.getPosition();
+		
+		for (int i = 0; i < strip.getTabCount(); i++) {
+			final String tab = "tab " + i + " at page " + position;
+			final int left = strip.getLeft(i);
+			
+			if (Math.abs(i - position) <= FakeStrip.WINDOW_RADIUS) {
+				assertEquals(tab, engine.getPos(i, position), left);
+			} else {
+				assertTrue(tab + " on screen", left + engine.getTabWidth(i) <= 0 || left >= FakeStrip.STRIP_WIDTH);
+			}
+		}
+	}
+	
+	private static com.sun.management.ThreadMXBean getThreadMXBean() {
+		final java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		
+		if (!(threads instanceof com.sun.management.ThreadMXBean)) return null;
+		
+		final com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) threads;
+		
+		if (!sun.isThreadAllocatedMemorySupported()) return null;
+		
+		sun.setThreadAllocatedMemoryEnabled(true);
+		return sun;
+	}
+	
+	
+	/**
+	 * Fails as soon as a frame touches more tabs than allowed
+	 */
+	private static final class FrameBudget implements FakePager.FrameListener {
+		
+		private final int mMaxTouched;
+		
+		private int mMaxSeen = 0;
+		
+		FrameBudget(int maxTouched) {
+			mMaxTouched = maxTouched;
+		}
+		
+		@Override
+		public void onFrame(FakePager pager, int tabsTouched) {
+			if (tabsTouched > mMaxTouched) {
+				throw new AssertionError("frame " + pager.getFrameCount() + " at page " + pager.getCurrentItem()
+				    + " touched " + tabsTouched + " tabs, the budget is " + mMaxTouched);
+			}
+			mMaxSeen = Math.max(mMaxSeen, tabsTouched);
+		}
+		
+		int getMaxTouched() {
+			return mMaxSeen;
+		}
+	}
+	
+}
@@ -0,0 +1,236 @@
+package com.astuetz.viewpagertabs;
+
+import org.robolectric.Robolectric;
+import org.robolectric.shadows.ShadowChoreographer;
+import org.robolectric.shadows.ShadowLooper;
+
+import android.app.Activity;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.support.v4.view.ViewPager;
+import android.view.View;
+import android.view.View.MeasureSpec;
+import android.widget.LinearLayout;
+
+/**
+ * Binds a real {@link ViewPagerTabs} to a {@link FakeViewPager} in an
+ * activity and replays scripted swipes and jumps on Robolectric, one frame
+ * at a time. A frame runs the tasks posted to the UI thread, then does what
+ * the traversal of a window does: measure and layout if requested, pre-draw
+ * and draw. The work of every frame is counted through the
+ * {@link TabMetricsListener} of the strip.
+ */
+final class StripHarness implements TabMetricsListener {
+	
+	// One frame at 60 frames per second, the clock advances by it every frame
+	static final int FRAME_MILLIS = 16;
+	
+	// The jump animation of the strip takes 250 ms, it ends within these
+	static final int JUMP_FRAMES = 250 / FRAME_MILLIS + 2;
+	
+	/**
+	 * The work of the strip in one frame
+	 */
+	static final class Frame {
+		int requestLayouts;
+		int layouts;
+		int measured;
+		int touched;
+		int drawn;
+	}
+	
+	/**
+	 * Notified after every frame
+	 */
+	interface FrameListener {
+		public void onFrame(StripHarness harness, Frame frame);
+	}
+	
+	
+	private final ViewPagerTabs mStrip;
+	private final FakeViewPager mPager;
+	private final int mPages;
+	
+	private final View mRoot;
+	
+	private final Canvas mCanvas;
+	
+	private FrameListener mListener;
+	
+	private final Frame mFrame = new Frame();
+	private int mLayouts = 0;
+	private int mDrawn = 0;
+	
+	private int mFrameCount = 0;
+	
+	
+	StripHarness(int pages, int renderMode, boolean virtualized) {
+		
+		// the delay is static, the previous test left it set
+		ShadowChoreographer.setPostCallbackDelay(0);
+		
+		final Activity activity = Robolectric.setupActivity(Activity.class);
+		
+		// from now on posted tasks run once per frame, and the traversals of
+		// Robolectric never, frame() does them
+		ShadowChoreographer.setPostCallbackDelay(Integer.MAX_VALUE);
+		ShadowLooper.pauseMainLooper();
+		
+		mRoot = activity.getWindow().getDecorView();
+		
+		mPages = pages;
+		mStrip = new ViewPagerTabs(activity);
+		mStrip.setRenderMode(renderMode);
+		mStrip.setVirtualized(virtualized);
+		mPager = new FakeViewPager(activity, pages);
+		
+		final LinearLayout root = new LinearLayout(activity);
+		root.setOrientation(LinearLayout.VERTICAL);
+		root.addView(mStrip, new LinearLayout.LayoutParams(LinearLayout.LayoutParams.MATCH_PARENT,
+		    LinearLayout.LayoutParams.WRAP_CONTENT));
+		root.addView(mPager, new LinearLayout.LayoutParams(LinearLayout.LayoutParams.MATCH_PARENT, 0, 1));
+		activity.setContentView(root);
+		
+		mStrip.setViewPager(mPager);
+		mStrip.setMetricsListener(this);
+		
+		// the tabs are built and measured, then the work is counted from the
+		// next frame on
+		frame();
+		
+		mCanvas = new Canvas(Bitmap.createBitmap(mStrip.getWidth(), mStrip.getHeight(), Bitmap.Config.ARGB_8888));
+		
+		frame();
+	}
+	
+	ViewPagerTabs getStrip() {
+		return mStrip;
+	}
+	
+	int getCurrentItem() {
+		return mPager.getCurrentItem();
+	}
+	
+	int getFrameCount() {
+		return mFrameCount;
+	}
+	
+	void setFrameListener(FrameListener listener) {
+		mListener = listener;
+	}
+	
+	/**
+	 * Drags to the next or previous page, releases past the middle and
+	 * settles there, like {@link FakePager#swipe(boolean)}
+	 */
+	void swipe(boolean right) {
+		
+		final int from = mPager.getCurrentItem();
+		final int target = right ? from + 1 : from - 1;
+		
+		if (target < 0 || target >= mPages) return;
+		
+		mPager.onPageScrollStateChanged(ViewPager.SCROLL_STATE_DRAGGING);
+		
+		final int frames = FakePager.DRAG_FRAMES + FakePager.SETTLE_FRAMES;
+		
+		for (int f = 1; f <= frames; f++) {
+			
+			final int substeps = f <= FakePager.DRAG_FRAMES ? FakePager.SCROLLS_PER_FRAME : 1;
+			
+			for (int s = 1; s <= substeps; s++) {
+				final float x = (f - 1 + s / (float) substeps) / frames;
+				final float scroll = from + (target - from) * x;
+				
+				final int page = (int) Math.floor(scroll);
+				mPager.onPageScrolled(page, scroll - page);
+			}
+			
+			// released
+			if (f == FakePager.DRAG_FRAMES) {
+				mPager.onPageScrollStateChanged(ViewPager.SCROLL_STATE_SETTLING);
+				mPager.onPageSelected(target);
+			}
+			
+			frame();
+		}
+		
+		mPager.onPageScrollStateChanged(ViewPager.SCROLL_STATE_IDLE);
+		frame();
+	}
+	
+	/**
+	 * Like setCurrentItem(int) after a tab has been tapped, the pager scrolls
+	 * over the pages in between while the strip animates its tabs
+	 */
+	void jumpTo(int target) {
+		
+		final int from = mPager.getCurrentItem();
+		
+		if (target == from) return;
+		
+		mPager.onPageScrollStateChanged(ViewPager.SCROLL_STATE_SETTLING);
+		mPager.onPageSelected(target);
+		
+		for (int f = 1; f <= JUMP_FRAMES; f++) {
+			final float scroll = from + (target - from) * (f / (float) JUMP_FRAMES);
+			final int page = (int) Math.floor(scroll);
+			mPager.onPageScrolled(page, scroll - page);
+			frame();
+		}
+		
+		mPager.onPageScrollStateChanged(ViewPager.SCROLL_STATE_IDLE);
+		frame();
+	}
+	
+	/**
+	 * Runs the tasks posted within the next frame, then measures and lays out
+	 * the window if requested, dispatches the pre-draw and draws the strip.
+	 * Robolectric's View.draw() only calls onDraw(), the tabs are drawn by
+	 * dispatchDraw().
+	 */
+	void frame() {
+		ShadowLooper.idleMainLooper(FRAME_MILLIS);
+		
+		if (mRoot.isLayoutRequested()) {
+			final int width = mRoot.getWidth();
+			final int height = mRoot.getHeight();
+			
+			mRoot.measure(MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY),
+			    MeasureSpec.makeMeasureSpec(height, MeasureSpec.EXACTLY));
+			mRoot.layout(0, 0, width, height);
+		}
+		
+		mRoot.getViewTreeObserver().dispatchOnPreDraw();
+		
+		if (mCanvas != null) {
+			mStrip.onDraw(mCanvas);
+			mStrip.dispatchDraw(mCanvas);
+		}
+	}
+	
+	
+	@Override
+	public void onEvent(int event, long durationNanos) {
+		if (event == EVENT_LAYOUT) mLayouts++;
+		if (event == EVENT_DRAW_TAB) mDrawn++;
+	}
+	
+	@Override
+	public void onFrame(int requestLayoutCount, int measureCount, int tabsTouched) {
+		
+		final Frame frame = mFrame;
+		frame.requestLayouts = requestLayoutCount;
+		frame.layouts = mLayouts;
+		frame.measured = measureCount;
+		frame.touched = tabsTouched;
+		frame.drawn = mDrawn;
+		
+		mLayouts = 0;
+		mDrawn = 0;
+		mFrameCount++;
+		
+		if (mListener != null) mListener.onFrame(this, frame);
+	}
+	
+}
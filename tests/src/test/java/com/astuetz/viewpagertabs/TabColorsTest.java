@@ -0,0 +1,35 @@
+package com.astuetz.viewpagertabs;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class TabColorsTest {
+	
+	@Test
+	public void endsAtBothColors() {
+		assertEquals(0xFF999999, TabColors.interpColor(0xFF999999, 0xFF91A438, 0));
+		assertEquals(0xFF91A438, TabColors.interpColor(0xFF999999, 0xFF91A438, 1));
+		assertEquals(0xFF999999, TabColors.interpColor(0xFF999999, 0xFF91A438, -1));
+		assertEquals(0xFF91A438, TabColors.interpColor(0xFF999999, 0xFF91A438, 2));
+	}
+	
+	@Test
+	public void blendsEveryChannel() {
+		assertEquals(0xFF808080, TabColors.interpColor(0xFF000000, 0xFFFFFFFF, 0.5f));
+		assertEquals(0x80000000, TabColors.interpColor(0x00000000, 0xFF000000, 0.5f));
+		assertEquals(0x80FF0000, TabColors.interpColor(0xFFFF0000, 0x00FF0000, 0.5f));
+	}
+	
+	@Test
+	public void fillsTableByPercentage() {
+		final int[] table = new int[101];
+		
+		TabColors.fillColorTable(table, 0xFF000000, 0xFFFFFFFF);
+		
+		assertEquals(0xFF000000, table[0]);
+		assertEquals(0xFF808080, table[50]);
+		assertEquals(0xFFFFFFFF, table[100]);
+	}
+	
+}
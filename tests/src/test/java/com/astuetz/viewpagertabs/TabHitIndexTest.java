@@ -0,0 +1,69 @@
+package com.astuetz.viewpagertabs;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class TabHitIndexTest {
+	
+	private static final int WIDTH = 480;
+	
+	@Test
+	public void findsTabsAddedInAnyOrder() {
+		final TabHitIndex index = new TabHitIndex(2);
+		
+		index.add(7, 300, 400, WIDTH);
+		index.add(5, 0, 100, WIDTH);
+		index.add(6, 150, 250, WIDTH);
+		
+		assertEquals(3, index.size());
+		
+		assertEquals(5, index.find(0));
+		assertEquals(5, index.find(99));
+		assertEquals(-1, index.find(100));
+		assertEquals(6, index.find(200));
+		assertEquals(-1, index.find(275));
+		assertEquals(7, index.find(300));
+		assertEquals(-1, index.find(450));
+	}
+	
+	@Test
+	public void ignoresEmptyTabsAndTabsOffScreen() {
+		final TabHitIndex index = new TabHitIndex(4);
+		
+		index.add(1, -200, -100, WIDTH);
+		index.add(2, 100, 100, WIDTH);
+		index.add(3, WIDTH, WIDTH + 100, WIDTH);
+		index.add(4, -50, 50, WIDTH);
+		
+		assertEquals(1, index.size());
+		assertEquals(4, index.find(0));
+	}
+	
+	@Test
+	public void findsNeighbours() {
+		final TabHitIndex index = new TabHitIndex(4);
+		
+		index.add(5, 0, 100, WIDTH);
+		index.add(6, 150, 250, WIDTH);
+		index.add(7, 300, 400, WIDTH);
+		
+		assertEquals(7, index.findNeighbour(6, true));
+		assertEquals(5, index.findNeighbour(6, false));
+		assertEquals(-1, index.findNeighbour(7, true));
+		assertEquals(-1, index.findNeighbour(5, false));
+		assertEquals(-1, index.findNeighbour(9, true));
+	}
+	
+	@Test
+	public void clearRemovesAllTabs() {
+		final TabHitIndex index = new TabHitIndex(4);
+		
+		index.add(5, 0, 100, WIDTH);
+		index.clear();
+		
+		assertEquals(0, index.size());
+		assertEquals(-1, index.find(50));
+	}
+	
+}
@@ -0,0 +1,138 @@
+package com.astuetz.viewpagertabs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TabPositionEngineTest {
+	
+	private static final int STRIP_WIDTH = 480;
+	private static final int OUTSIDE_OFFSET = 30;
+	private static final int PADDING = 10;
+	
+	private TabPositionEngine mEngine;
+	
+	
+	@Before
+	public void setUp() {
+		mEngine = new TabPositionEngine();
+		mEngine.setTabCount(20);
+		
+		for (int i = 0; i < 20; i++) {
+			mEngine.setTabWidth(i, 100);
+		}
+		
+		mEngine.setStripWidth(STRIP_WIDTH);
+		mEngine.setOutsideOffset(OUTSIDE_OFFSET);
+		mEngine.setTabPadding(PADDING, PADDING);
+	}
+	
+	@Test
+	public void settledPositions() {
+		final int page = 5;
+		
+		// centered, left and right aligned, outside
+		assertEquals(STRIP_WIDTH / 2 - 50, mEngine.getPos(page, page));
+		assertEquals(-PADDING, mEngine.getPos(page - 1, page));
+		assertEquals(STRIP_WIDTH - 100 + PADDING, mEngine.getPos(page + 1, page));
+		assertEquals(-100 - OUTSIDE_OFFSET, mEngine.getPos(page - 2, page));
+		assertEquals(STRIP_WIDTH + OUTSIDE_OFFSET, mEngine.getPos(page + 2, page));
+	}
+	
+	@Test
+	public void wideNeighboursDontOverlapTheCenter() {
+		mEngine.setTabWidth(4, 250);
+		mEngine.setTabWidth(6, 250);
+		
+		final int center = mEngine.getPos(5, 5);
+		
+		assertTrue(mEngine.getPos(4, 5) + 250 <= center);
+		assertTrue(mEngine.getPos(6, 5) >= center + 100);
+	}
+	
+	@Test
+	public void positionsFollowTheScroll() {
+		for (int i = 3; i <= 7; i++) {
+			final int from = mEngine.getPos(i, 5);
+			final int to = mEngine.getPos(i, 6);
+			final int half = mEngine.getPos(i, 5.5f);
+			
+			assertTrue("tab " + i, half >= Math.min(from, to) && half <= Math.max(from, to));
+			assertEquals("tab " + i, to, mEngine.getPos(i, 6.0f));
+		}
+	}
+	
+	@Test
+	public void layoutMatchesGetPos() {
+		mEngine.calculate(5, true);
+		mEngine.layout(5.25f);
+		
+		for (int i = 3; i <= 7; i++) {
+			assertEquals("tab " + i, mEngine.getPos(i, 5.25f), mEngine.getLayoutPos(i));
+		}
+	}
+	
+	@Test
+	public void calculateKeepsLayoutPositions() {
+		mEngine.calculate(5, true);
+		mEngine.layout(5.75f);
+		
+		final int pos = mEngine.getLayoutPos(6);
+		
+		mEngine.calculate(6, false);
+		
+		assertEquals(6, mEngine.getPosition());
+		assertEquals(pos, mEngine.getLayoutPos(6));
+	}
+	
+	@Test
+	public void animationEndsAtSettledPositions() {
+		mEngine.calculate(2, true);
+		mEngine.calculateAnimated(12);
+		
+		assertEquals(5, mEngine.getLeavingCount());
+		
+		mEngine.animate(0.5f);
+		
+		// tab 14 rests right of the strip before and after
+		for (int i = 10; i <= 13; i++) {
+			assertTrue("tab " + i, mEngine.getLayoutPos(i) != mEngine.getPos(i, 12));
+		}
+		
+		mEngine.animate(1.0f);
+		
+		for (int i = 10; i <= 14; i++) {
+			assertEquals("tab " + i, mEngine.getPos(i, 12), mEngine.getLayoutPos(i));
+		}
+	}
+	
+	@Test
+	public void leavingTabsAreReportedAtTheirRestingPosition() {
+		mEngine.calculate(2, true);
+		mEngine.calculateAnimated(12);
+		mEngine.animate(1.0f);
+		
+		// the strip moves the leaving tabs with the last step
+		assertEquals(5, mEngine.getLeavingCount());
+		
+		for (int n = 0; n < mEngine.getLeavingCount(); n++) {
+			final int i = mEngine.getLeavingPosition(n);
+			assertEquals("tab " + i, -100 - OUTSIDE_OFFSET, mEngine.getLayoutPos(i));
+		}
+		
+		mEngine.layout(12);
+		assertEquals(0, mEngine.getLeavingCount());
+	}
+	
+	@Test
+	public void growingKeepsWidths() {
+		mEngine.setTabWidth(19, 123);
+		mEngine.setTabCount(1000);
+		
+		assertEquals(1000, mEngine.getTabCount());
+		assertEquals(123, mEngine.getTabWidth(19));
+	}
+	
+}
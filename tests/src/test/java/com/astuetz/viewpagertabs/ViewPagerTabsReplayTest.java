@@ -0,0 +1,177 @@
+package com.astuetz.viewpagertabs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.ParameterizedRobolectricTestRunner;
+import org.robolectric.ParameterizedRobolectricTestRunner.Parameters;
+import org.robolectric.annotation.Config;
+
+/**
+ * Replays scripted swipes and jumps on the real {@link ViewPagerTabs}, bound
+ * to a {@link FakeViewPager} at 10, 100 and 1,000 pages in every render mode,
+ * and checks the work of every frame reported to the
+ * {@link TabMetricsListener} against the budgets below. None of them depends
+ * on the page count.
+ * <p>
+ * Allocations are checked by {@link ScrollReplayTest}, the shadows of
+ * Robolectric allocate by themselves.
+ */
+@RunWith(ParameterizedRobolectricTestRunner.class)
+@Config(sdk = 19, manifest = Config.NONE)
+public class ViewPagerTabsReplayTest {
+	
+	private static final int WINDOW_SIZE = TabPositionEngine.WINDOW_RADIUS * 2 + 1;
+	
+	// The strip is laid out at most once per frame
+	private static final int MAX_LAYOUTS_PER_FRAME = 1;
+	
+	// A swipe measures the tab entering the window, and the first child which
+	// gives the strip its height
+	private static final int MAX_MEASURED_PER_SWIPE_FRAME = 2;
+	
+	// A jump measures the whole new window
+	private static final int MAX_MEASURED_PER_JUMP_FRAME = WINDOW_SIZE + 1;
+	
+	// One request per tab changing its content
+	private static final int MAX_REQUEST_LAYOUTS_PER_SWIPE_FRAME = WINDOW_SIZE;
+	private static final int MAX_REQUEST_LAYOUTS_PER_JUMP_FRAME = WINDOW_SIZE + 1;
+	
+	// A swipe moves at most the tabs of the window
+	private static final int MAX_TABS_TOUCHED_PER_SWIPE_FRAME = WINDOW_SIZE;
+	
+	// A jump lays out the new window and moves it and the tabs leaving the
+	// old one
+	private static final int MAX_TABS_TOUCHED_PER_JUMP_FRAME = WINDOW_SIZE * 3;
+	
+	// Only the tabs of the window are drawn, while jumping also the leaving
+	// ones
+	private static final int MAX_DRAWN_PER_SWIPE_FRAME = WINDOW_SIZE;
+	private static final int MAX_DRAWN_PER_JUMP_FRAME = WINDOW_SIZE * 2;
+	
+	// The cost of a swipe doesn't depend on the page, a few of them do
+	private static final int SWIPES = 12;
+	
+	
+	@Parameters(name = "{0} pages, {3}")
+	public static Collection<Object[]> configurations() {
+		final ArrayList<Object[]> configurations = new ArrayList<Object[]>();
+		
+		for (int pages : new int[] { 10, 100, 1000 }) {
+			configurations.add(new Object[] { pages, ViewPagerTabs.RENDER_MODE_VIEWS, false, "views" });
+			configurations.add(new Object[] { pages, ViewPagerTabs.RENDER_MODE_VIEWS, true, "virtualized views" });
+			configurations.add(new Object[] { pages, ViewPagerTabs.RENDER_MODE_CANVAS, false, "canvas" });
+		}
+		return configurations;
+	}
+	
+	@BeforeClass
+	public static void assumeJava8() {
+		Assume.assumeTrue("Robolectric 3.8 needs Java 8", System.getProperty("java.version").startsWith("1.8"));
+	}
+	
+	private final int mPages;
+	private final int mRenderMode;
+	private final boolean mVirtualized;
+	
+	
+	public ViewPagerTabsReplayTest(int pages, int renderMode, boolean virtualized, String name) {
+		mPages = pages;
+		mRenderMode = renderMode;
+		mVirtualized = virtualized;
+	}
+	
+	@Test
+	public void swipeStaysWithinBudget() {
+		final StripHarness harness = new StripHarness(mPages, mRenderMode, mVirtualized);
+		final FrameBudget budget = new FrameBudget(MAX_REQUEST_LAYOUTS_PER_SWIPE_FRAME, MAX_MEASURED_PER_SWIPE_FRAME,
+		    MAX_TABS_TOUCHED_PER_SWIPE_FRAME, MAX_DRAWN_PER_SWIPE_FRAME);
+		harness.setFrameListener(budget);
+		
+		final int swipes = Math.min(SWIPES, mPages - 1);
+		
+		for (int i = 0; i < swipes; i++) {
+			harness.swipe(true);
+		}
+		for (int i = 0; i < swipes; i++) {
+			harness.swipe(false);
+		}
+		
+		assertEquals(0, harness.getCurrentItem());
+		assertTrue(budget.getMaxTouched() > 0);
+		assertTrue(budget.getMaxDrawn() > 0);
+	}
+	
+	@Test
+	public void jumpStaysWithinBudget() {
+		final StripHarness harness = new StripHarness(mPages, mRenderMode, mVirtualized);
+		final FrameBudget budget = new FrameBudget(MAX_REQUEST_LAYOUTS_PER_JUMP_FRAME, MAX_MEASURED_PER_JUMP_FRAME,
+		    MAX_TABS_TOUCHED_PER_JUMP_FRAME, MAX_DRAWN_PER_JUMP_FRAME);
+		harness.setFrameListener(budget);
+		
+		harness.jumpTo(mPages - 1);
+		harness.jumpTo(mPages / 2);
+		harness.jumpTo(Math.min(mPages - 1, mPages / 2 + 3));
+		harness.jumpTo(0);
+		
+		assertEquals(0, harness.getCurrentItem());
+		assertTrue(budget.getMaxDrawn() > 0);
+	}
+	
+	
+	/**
+	 * Fails as soon as a frame does more work than allowed
+	 */
+	private static final class FrameBudget implements StripHarness.FrameListener {
+		
+		private final int mMaxRequestLayouts;
+		private final int mMaxMeasured;
+		private final int mMaxTouched;
+		private final int mMaxDrawn;
+		
+		private int mMaxTouchedSeen = 0;
+		private int mMaxDrawnSeen = 0;
+		
+		FrameBudget(int maxRequestLayouts, int maxMeasured, int maxTouched, int maxDrawn) {
+			mMaxRequestLayouts = maxRequestLayouts;
+			mMaxMeasured = maxMeasured;
+			mMaxTouched = maxTouched;
+			mMaxDrawn = maxDrawn;
+		}
+		
+		@Override
+		public void onFrame(StripHarness harness, StripHarness.Frame frame) {
+			check(harness, "requested layouts", frame.requestLayouts, mMaxRequestLayouts);
+			check(harness, "layouts", frame.layouts, MAX_LAYOUTS_PER_FRAME);
+			check(harness, "measured tabs", frame.measured, mMaxMeasured);
+			check(harness, "touched tabs", frame.touched, mMaxTouched);
+			check(harness, "drawn tabs", frame.drawn, mMaxDrawn);
+			
+			mMaxTouchedSeen = Math.max(mMaxTouchedSeen, frame.touched);
+			mMaxDrawnSeen = Math.max(mMaxDrawnSeen, frame.drawn);
+		}
+		
+		private static void check(StripHarness harness, String work, int count, int max) {
+			if (count > max) {
+				throw new AssertionError("frame " + harness.getFrameCount() + " at page " + harness.getCurrentItem()
+				    + " had " + count + " " + work + ", the budget is " + max);
+			}
+		}
+		
+		int getMaxTouched() {
+			return mMaxTouchedSeen;
+		}
+		
+		int getMaxDrawn() {
+			return mMaxDrawnSeen;
+		}
+	}
+	
+}